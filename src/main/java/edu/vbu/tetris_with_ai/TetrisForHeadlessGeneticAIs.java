@@ -0,0 +1,110 @@
+package edu.vbu.tetris_with_ai;
+
+import edu.vbu.tetris_with_ai.ai.AgentsMaster;
+import edu.vbu.tetris_with_ai.ai.GeneticAgentsMaster;
+import edu.vbu.tetris_with_ai.ai.GeneticAlgoAgent;
+import edu.vbu.tetris_with_ai.ai.features.BoardFeature;
+import edu.vbu.tetris_with_ai.ai.features.FeatureExtractor;
+import edu.vbu.tetris_with_ai.ai.optimizers.CmaEsOptimizer;
+import edu.vbu.tetris_with_ai.ai.optimizers.CrossEntropyOptimizer;
+import edu.vbu.tetris_with_ai.ai.optimizers.GeneticOptimizer;
+import edu.vbu.tetris_with_ai.ai.optimizers.Optimizer;
+import edu.vbu.tetris_with_ai.core.TetrisGame;
+import edu.vbu.tetris_with_ai.core.shapes.PieceGenerator;
+import edu.vbu.tetris_with_ai.utils.Constants;
+import edu.vbu.tetris_with_ai.utils.TetrisUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * <pre>
+ * Trains a population of genetic AIs without any UI (no window, no Swing class is ever loaded), so it can run on machines without a display.
+ * Progress is only reported through the logs.
+ *
+ * Usage: TetrisForHeadlessGeneticAIs [game count] [seed] [UNIFORM | SEVEN_BAG] [GENERATIONAL | STEADY_STATE] [initial racing piece budget]
+ *                                    [GENETIC | CROSS_ENTROPY | CMA_ES] [target fitness] [DEFAULT | DELLACHERIE | ALL features]
+ *                                    [CURRENT_PIECE | WITH_UPCOMING_PIECE search]
+ * Runs started with the same seed (and piece generator mode) play the same pieces and breed the same agents.
+ * The number of games played until the target fitness is reached is logged, to compare the optimizers, and ends the run (without a target, it runs until killed).
+ * Agents which search the upcoming piece too share their searches out over the common fork/join pool, unless every core already plays a game.
+ * </pre>
+ */
+public class TetrisForHeadlessGeneticAIs {
+
+    private static final Logger LOG = LogManager.getLogger(TetrisForHeadlessGeneticAIs.class);
+
+    public static void main(String[] args) throws InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+
+        int totalGames = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        PieceGenerator.Mode pieceGeneratorMode = args.length > 2 ? PieceGenerator.Mode.valueOf(args[2]) : PieceGenerator.Mode.UNIFORM;
+        GeneticAgentsMaster.EvolutionMode evolutionMode = args.length > 3 ? GeneticAgentsMaster.EvolutionMode.valueOf(args[3]) : GeneticAgentsMaster.EvolutionMode.GENERATIONAL;
+        int racingInitialPieceBudget = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+        String optimizerName = args.length > 5 ? args[5] : "GENETIC";
+        double targetFitness = args.length > 6 ? Double.parseDouble(args[6]) : 0.0;
+        String featureSetName = args.length > 7 ? args[7] : "DEFAULT";
+        GeneticAgentsMaster.SearchMode searchMode = args.length > 8 ? GeneticAgentsMaster.SearchMode.valueOf(args[8]) : GeneticAgentsMaster.SearchMode.CURRENT_PIECE;
+
+        LOG.info("Starting {} headless Tetris game(s) for {} AI(s) using {} (seed = {}, pieces = {}, evolution = {}, racing budget = {}, target fitness = {}, features = {}, search = {})..."
+                , () -> totalGames, () -> totalGames, () -> optimizerName, () -> seed, () -> pieceGeneratorMode, () -> evolutionMode, () -> racingInitialPieceBudget, () -> targetFitness, () -> featureSetName, () -> searchMode);
+
+        SplittableRandom seedGenerator = new SplittableRandom(seed);
+        GeneticAgentsMaster agentsMaster = new GeneticAgentsMaster(seedGenerator.nextLong());
+        agentsMaster.setEvaluationSettings(Constants.AI_EVALUATION_SEQUENCE_COUNT, Constants.AI_EVALUATION_SEQUENCES_KEPT_PER_GENERATION, pieceGeneratorMode);
+        agentsMaster.setEvolutionMode(evolutionMode);
+        agentsMaster.setRacingSettings(racingInitialPieceBudget, Constants.AI_RACING_BUDGET_GROWTH_FACTOR);
+        agentsMaster.setFeatures(getFeatures(featureSetName));
+        agentsMaster.setOptimizer(createOptimizer(optimizerName, agentsMaster.getFeatures().length, totalGames, evolutionMode, seedGenerator.nextLong()));
+        agentsMaster.setTargetFitness(targetFitness);
+        agentsMaster.setSearchMode(searchMode, totalGames < Constants.AI_WORKER_THREAD_COUNT ? ForkJoinPool.commonPool() : null);
+        agentsMaster.setStepMode(AgentsMaster.StepMode.PLACEMENT);
+        agentsMaster.setWaitMillisBetweenSteps(0L);
+
+        for (int k = 0; k < totalGames; k++) {
+            int gameID = TetrisUtils.getNextAgentID();
+
+            TetrisGame tetrisGame = new TetrisGame(gameID);
+            tetrisGame.startGame(0L, false);
+
+            GeneticAlgoAgent geneticAgent = agentsMaster.newAgent(gameID, seedGenerator.nextLong());
+            agentsMaster.addAgent(tetrisGame, geneticAgent);
+        }
+
+        agentsMaster.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> LOG.info("Exiting...")));
+
+        // The agents play on daemon threads, so the run lasts as long as this thread waits.
+        agentsMaster.awaitTargetFitness();
+    }
+
+    private static FeatureExtractor[] getFeatures(String featureSetName) {
+        switch (featureSetName) {
+            case "DEFAULT":
+                return BoardFeature.getDefaultFeatures();
+            case "DELLACHERIE":
+                return BoardFeature.getDellacherieFeatures();
+            case "ALL":
+                return BoardFeature.getAllFeatures();
+            default:
+                throw new IllegalArgumentException("Unknown feature set: " + featureSetName);
+        }
+    }
+
+    private static Optimizer createOptimizer(String name, int dimension, int populationSize, GeneticAgentsMaster.EvolutionMode evolutionMode, long seed) {
+        switch (name) {
+            case "GENETIC":
+                return new GeneticOptimizer(dimension, populationSize, evolutionMode == GeneticAgentsMaster.EvolutionMode.STEADY_STATE, seed);
+            case "CROSS_ENTROPY":
+                return new CrossEntropyOptimizer(dimension, populationSize, seed);
+            case "CMA_ES":
+                return new CmaEsOptimizer(dimension, populationSize, seed);
+            default:
+                throw new IllegalArgumentException("Unknown optimizer: " + name);
+        }
+    }
+}
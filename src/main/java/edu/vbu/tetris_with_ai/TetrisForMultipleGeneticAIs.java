@@ -1,5 +1,6 @@
 package edu.vbu.tetris_with_ai;
 
+import edu.vbu.tetris_with_ai.ai.AgentsMaster;
 import edu.vbu.tetris_with_ai.ai.GeneticAgentsMaster;
 import edu.vbu.tetris_with_ai.ai.GeneticAlgoAgent;
 import edu.vbu.tetris_with_ai.core.TetrisGame;
@@ -22,6 +23,7 @@ public class TetrisForMultipleGeneticAIs {
 
         GameCompositeWindow gameCompositeWindow = new GameCompositeWindow("Tetris (genetic AI)", gamesPerColumn, gamesPerRow);
         GeneticAgentsMaster agentsMaster = new GeneticAgentsMaster();
+        agentsMaster.setStepMode(AgentsMaster.StepMode.PLACEMENT);
         GameStatsWindow gameStats = new GameStatsWindow("Stats", agentsMaster);
 
         for (int k = 0; k < totalGames; k++) {
@@ -1,26 +1,33 @@
 package edu.vbu.tetris_with_ai.ai;
 
 import edu.vbu.tetris_with_ai.core.Action;
+import edu.vbu.tetris_with_ai.core.Placement;
 import edu.vbu.tetris_with_ai.core.TetrisGame;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayDeque;
 import java.util.Queue;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 public abstract class Agent {
 
     private static final Logger LOG = LogManager.getLogger(Agent.class);
 
-    protected static final Random RANDOM = new Random(System.currentTimeMillis());
-
     private final long id;
     private final Queue<Action> actions;
 
+    // Owned by this agent only (no contention between agent threads), seeded to make its decisions reproducible.
+    protected final SplittableRandom random;
+
     public Agent(long id) {
+        this(id, new SplittableRandom());
+    }
+
+    protected Agent(long id, SplittableRandom random) {
         this.id = id;
         this.actions = new ArrayDeque<>(4);
+        this.random = random;
     }
 
     public Action getNextAction(TetrisGame gameToPlay) {
@@ -33,10 +40,31 @@ public abstract class Agent {
         return actions.poll();
     }
 
+    /**
+     * @return where the current piece should go, or null if this agent can only play action by action (see {@link #getNextAction(TetrisGame)}).
+     */
+    public Placement getNextPlacement(TetrisGame gameToPlay) {
+        // Actions planned for the current piece no longer apply once it's placed directly.
+        actions.clear();
+
+        Placement placement = determinePlacement(gameToPlay);
+
+        LOG.debug("Agent [{}] has chosen placement: {}", this::getName, () -> placement);
+
+        return placement;
+    }
+
     protected long getId() {
         return id;
     }
 
+    /**
+     * Agents which evaluate whole placements should override this, to be usable in the placement stepping mode (see {@link AgentsMaster.StepMode}).
+     */
+    protected Placement determinePlacement(TetrisGame game) {
+        return null;
+    }
+
     protected abstract void determineActions(Queue<Action> actionQueueToFill, int actionAmount, TetrisGame game);
     protected abstract String getName();
 }
@@ -1,40 +1,73 @@
 package edu.vbu.tetris_with_ai.ai;
 
 import edu.vbu.tetris_with_ai.core.Action;
+import edu.vbu.tetris_with_ai.core.Placement;
 import edu.vbu.tetris_with_ai.core.TetrisGame;
 import edu.vbu.tetris_with_ai.utils.Constants;
 import edu.vbu.tetris_with_ai.utils.VoidFunctionOneArg;
+import edu.vbu.tetris_with_ai.utils.VoidFunctionTwoArgs;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <pre>
+ * Has agents play their games on a fixed pool of worker threads, shared by every master and kept across generations.
+ * Each game is stepped by a task which plays a few steps, then hands the worker over to the next game by rescheduling itself,
+ * so any number of games can run on as many threads as there are cores.
+ * The workers are daemon threads: they never keep the JVM alive, the application does (through its windows, or its main thread when headless).
+ * </pre>
+ */
 public class AgentsMaster {
 
     private static final Logger LOG = LogManager.getLogger(AgentsMaster.class);
 
+    private static final AtomicInteger WORKER_COUNTER = new AtomicInteger();
+    private static final ScheduledExecutorService WORKERS = Executors.newScheduledThreadPool(Constants.AI_WORKER_THREAD_COUNT, AgentsMaster::newWorkerThread);
+
+    /**
+     * How much of a game an agent plays on every iteration of its loop.
+     */
+    public enum StepMode {
+        /** A single action (a rotation, a move or a drop), followed by a game loop cycle (the piece falls one row). */
+        ACTION,
+
+        /** A whole piece: it's moved straight to the placement chosen by the agent, dropped and locked. */
+        PLACEMENT
+    }
+
     private final Map<TetrisGame, Agent> gamesAndAgents;
-    private final List<Thread> agentThreads;
-    private final ConcurrentMap<Thread, AtomicBoolean> agentsAndRunFlags;
+    private final Map<TetrisGame, GameRunner> gameRunners;
 
     private AtomicBoolean isRunning;
-    private Thread masterThread;
-    private Thread gameTimeoutThread;
+    private final AtomicInteger unfinishedGameCount;     // the last game to end completes the run (no polling of the games).
 
     private VoidFunctionOneArg<Map<TetrisGame, Agent>> allGamesOverCallback;
+    private VoidFunctionTwoArgs<TetrisGame, Agent> gameOverCallback;
+
+    private StepMode stepMode;
+    private long waitMillisBetweenSteps;
+    private long gameTickLimit;
+    private int gamePieceLimit;
 
     public AgentsMaster() {
-        gamesAndAgents = new HashMap<>(10);
-        agentThreads = new ArrayList<>(10);
-        agentsAndRunFlags = new ConcurrentHashMap<>(10);
+        gamesAndAgents = new ConcurrentHashMap<>(10);
+        gameRunners = new ConcurrentHashMap<>(10);
         isRunning = new AtomicBoolean(false);
+        unfinishedGameCount = new AtomicInteger();
+        stepMode = StepMode.ACTION;
+        waitMillisBetweenSteps = Constants.AI_WAIT_TIME_MILLIS_BEFORE_NEXT_MOVE;
+        gameTickLimit = Constants.AI_GAME_TICK_LIMIT;
+        gamePieceLimit = Constants.AI_GAME_PIECE_LIMIT;
     }
 
     /**
@@ -51,88 +84,119 @@ public class AgentsMaster {
     }
 
     /**
-     * @throws IllegalStateException if this master instance is already running (and some games are not over yet).
+     * @throws IllegalStateException if this master instance is already running (and some games are not over yet), or has no agent
+     *                               (the end of the run is detected by the last game to end, so it would never come).
      */
     public void start() throws IllegalStateException {
         if (isRunning.get()) {
             throw new IllegalStateException("Cannot start the master if it is already running");
         }
+        if (gamesAndAgents.isEmpty()) {
+            throw new IllegalStateException("Cannot start the master without any agent");
+        }
 
         isRunning.compareAndSet(false, true);
 
-        masterThread = new Thread(() -> gamesAndAgents.forEach((game, agent) -> {
-            Thread agentThread = new Thread(() -> {
-                while (agentsAndRunFlags.get(Thread.currentThread()) != null && agentsAndRunFlags.get(Thread.currentThread()).get()) {// (isRunning.get()) {
-                    if (!game.isGameOver()) {
-                        try {
-                            Action nextAction = agent.getNextAction(game);
-                            game.performAction(nextAction);
-                        } catch (Exception e) {
-                            LOG.error("An error occurred while performing an agent's action", e);
-                            game.endGame(TetrisGame.EndGameReason.ERROR);
-                        }
+        // Games end on their own, once their virtual clock runs out (see TetrisGame#setLimits).
+        gamesAndAgents.keySet().forEach(game -> game.setLimits(gameTickLimit, gamePieceLimit));
 
-                        try {
-                            game.gameLoopSingleCycle();
-                        } catch (Exception e) {
-                            LOG.error("An error occurred during an agent game's loop cycle", e);
-                            game.endGame(TetrisGame.EndGameReason.ERROR);
-                        }
-                    } else {
-                        LOG.info("Agent [{}] has finished its game", agent::getName);
-                        stopSpecificAgent(Thread.currentThread());
-                    }
+        gameRunners.clear();
+        gamesAndAgents.forEach((game, agent) -> gameRunners.put(game, new GameRunner(game, agent)));
+        unfinishedGameCount.set(gameRunners.size());
+        gameRunners.values().forEach(GameRunner::schedule);
+    }
 
-                    if (checkAreAllGamesOver()) {
-                        break;
-                    }
+    /**
+     * @throws IllegalStateException if this master instance is already stopped.
+     */
+    public void stop() throws IllegalStateException {
+        if (!stopRunning()) {
+            throw new IllegalStateException("Cannot stop the master if it is already stopped");
+        }
+    }
 
-                    waitForMillis(Constants.AI_WAIT_TIME_MILLIS_BEFORE_NEXT_MOVE);
-                }
-            }, "Game" + game.getId() + "Agent" + agent.getId() + "Thread");
+    /**
+     * @return completed with the final score of the given game once it's over, or cancelled if the master is stopped before.
+     */
+    public CompletableFuture<Double> getGameResult(TetrisGame game) {
+        return gameRunners.get(game).result;
+    }
 
-            agentThreads.add(agentThread);
-            agentsAndRunFlags.put(agentThread, new AtomicBoolean(true));
-            agentThread.start();
-        }));
+    /**
+     * @throws IllegalStateException if this master instance is already running (and some games are not over yet).
+     */
+    public void setStepMode(StepMode stepMode) throws IllegalStateException {
+        if (isRunning.get()) {
+            throw new IllegalStateException("Cannot change the step mode if the master is already running");
+        }
 
-        masterThread.start();
+        this.stepMode = stepMode;
+    }
 
-        gameTimeoutThread = new Thread(() -> {
-            waitForMillis(TimeUnit.SECONDS.toMillis(Constants.AI_GAME_TIME_LIMIT_SECONDS));
-            forceAllGamesOver();
-            checkAreAllGamesOver();
-        });
+    /**
+     * @param waitMillisBetweenSteps pause of every agent after each of its steps; agents don't sleep at all if it's 0 (e.g. when nobody watches the games).
+     */
+    public void setWaitMillisBetweenSteps(long waitMillisBetweenSteps) {
+        this.waitMillisBetweenSteps = waitMillisBetweenSteps;
+    }
 
-        gameTimeoutThread.start();
+    public long getWaitMillisBetweenSteps() {
+        return waitMillisBetweenSteps;
     }
 
     /**
-     * @throws IllegalStateException if this master instance is already stopped.
+     * @param gameTickLimit  see {@link TetrisGame#setLimits(long, int)}.
+     * @param gamePieceLimit see {@link TetrisGame#setLimits(long, int)}.
+     * @throws IllegalStateException if this master instance is already running (and some games are not over yet).
      */
-    public void stop() throws IllegalStateException {
-        if (!isRunning.get()) {
-            throw new IllegalStateException("Cannot stop the master if it is already stopped");
+    public void setGameLimits(long gameTickLimit, int gamePieceLimit) throws IllegalStateException {
+        if (isRunning.get()) {
+            throw new IllegalStateException("Cannot change the game limits if the master is already running");
         }
 
-        LOG.info("Stopping agents master thread.");
-
-        if (isRunning.compareAndSet(true, false)) {
-            agentThreads.forEach(Thread::interrupt);
-            agentThreads.clear();
+        this.gameTickLimit = gameTickLimit;
+        this.gamePieceLimit = gamePieceLimit;
+    }
 
-            agentsAndRunFlags.forEach((thread, runFlag) -> stopSpecificAgent(thread));
-            agentsAndRunFlags.clear();
+    public long getGameTickLimit() {
+        return gameTickLimit;
+    }
 
-            masterThread.interrupt();
-            gameTimeoutThread.interrupt();
-        }
+    public int getGamePieceLimit() {
+        return gamePieceLimit;
     }
 
     protected void setAllGamesOverCallback(VoidFunctionOneArg<Map<TetrisGame, Agent>> allGamesOverCallback) {
         this.allGamesOverCallback = allGamesOverCallback;
     }
 
+    /**
+     * @param gameOverCallback called by the worker which stepped a game to its end, with that game and its agent,
+     *                         before the end of the run is checked (so the game can be restarted right away, see {@link #restartGame(TetrisGame, Agent)}).
+     */
+    protected void setGameOverCallback(VoidFunctionTwoArgs<TetrisGame, Agent> gameOverCallback) {
+        this.gameOverCallback = gameOverCallback;
+    }
+
+    /**
+     * Has the given agent play the given (already reset) game, without waiting for the other games to be over.
+     *
+     * @throws IllegalStateException if this master instance is not running.
+     */
+    protected void restartGame(TetrisGame game, Agent agent) throws IllegalStateException {
+        if (!isRunning.get()) {
+            throw new IllegalStateException("Cannot restart a game if the master is not running");
+        }
+
+        GameRunner gameRunner = new GameRunner(game, agent);
+
+        gamesAndAgents.put(game, agent);
+        gameRunners.put(game, gameRunner);
+        unfinishedGameCount.incrementAndGet();
+
+        gameRunner.schedule();
+    }
+
     protected void resetGame(TetrisGame game, String newGameLabel) {
         game.reset(newGameLabel);
     }
@@ -141,32 +205,86 @@ public class AgentsMaster {
         gamesAndAgents.keySet().stream().filter(game -> !game.isGameOver()).forEach(game -> game.endGame(TetrisGame.EndGameReason.FORCED_BY_TIMEOUT));
     }
 
-    private void stopSpecificAgent(Thread agentThread) {
-        AtomicBoolean agentThreadRunFlag = agentsAndRunFlags.get(agentThread);
+    private void performNextAction(TetrisGame game, Agent agent) {
+        try {
+            Action nextAction = agent.getNextAction(game);
+            game.performAction(nextAction);
+        } catch (Exception e) {
+            LOG.error("An error occurred while performing an agent's action", e);
+            game.endGame(TetrisGame.EndGameReason.ERROR);
+        }
 
-        if (agentThreadRunFlag != null) {
-            agentThreadRunFlag.compareAndSet(true, false);
+        try {
+            game.gameLoopSingleCycle();
+        } catch (Exception e) {
+            LOG.error("An error occurred during an agent game's loop cycle", e);
+            game.endGame(TetrisGame.EndGameReason.ERROR);
         }
     }
 
-    private synchronized boolean checkAreAllGamesOver() {
-        if (areAllGamesOver()) {
-            if (isRunning.get()) {
-                stop();
+    private void performNextPlacement(TetrisGame game, Agent agent) {
+        Placement nextPlacement;
+
+        try {
+            nextPlacement = agent.getNextPlacement(game);
+        } catch (Exception e) {
+            LOG.error("An error occurred while determining an agent's placement", e);
+            game.endGame(TetrisGame.EndGameReason.ERROR);
+            return;
+        }
+
+        if (nextPlacement == null) {
+            // This agent can only play action by action.
+            performNextAction(game, agent);
+            return;
+        }
 
+        try {
+            game.performPlacement(nextPlacement);
+        } catch (Exception e) {
+            LOG.error("An error occurred while performing an agent's placement", e);
+            game.endGame(TetrisGame.EndGameReason.ERROR);
+        }
+    }
+
+    /**
+     * Called exactly once per game and run, by the worker which noticed the end of the game.
+     */
+    private void handleGameOver() {
+        // The master may also be stopped concurrently through stop(): only the caller which actually stops it completes the run.
+        if (unfinishedGameCount.decrementAndGet() == 0 && stopRunning()) {
+            // Runs on a worker, whose future would swallow the exception: the run would silently end there.
+            try {
                 if (allGamesOverCallback != null) {
                     allGamesOverCallback.call(gamesAndAgents);
                 }
+            } catch (Exception e) {
+                LOG.error("An error occurred while handling the end of all the agents' games", e);
             }
+        }
+    }
 
-            return true;
+    /**
+     * @return whether the master was running, in which case this call is the one which stopped it.
+     */
+    private boolean stopRunning() {
+        if (!isRunning.compareAndSet(true, false)) {
+            return false;
         }
 
-        return false;
+        LOG.info("Stopping agents master.");
+
+        // Games which are not over yet are simply no longer stepped (a step in progress completes normally).
+        gameRunners.values().forEach(GameRunner::cancel);
+
+        return true;
     }
 
-    private boolean areAllGamesOver() {
-        return gamesAndAgents.isEmpty() || gamesAndAgents.keySet().stream().allMatch(TetrisGame::isGameOver);
+    private static Thread newWorkerThread(Runnable task) {
+        Thread thread = new Thread(task, "AgentWorkerThread-" + WORKER_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+
+        return thread;
     }
 
     protected void waitForMillis(long millis) {
@@ -184,4 +302,72 @@ public class AgentsMaster {
     public Map<TetrisGame, Agent> getGamesAndAgents() {
         return gamesAndAgents;
     }
+
+    /**
+     * Steps a single game on the worker pool: a slice of steps per run, then the task reschedules itself until the game is over.
+     */
+    private final class GameRunner implements Runnable {
+
+        private final TetrisGame game;
+        private final Agent agent;
+        private final CompletableFuture<Double> result;
+
+        private volatile Future<?> nextRun;
+
+        private GameRunner(TetrisGame game, Agent agent) {
+            this.game = game;
+            this.agent = agent;
+            this.result = new CompletableFuture<>();
+        }
+
+        @Override
+        public void run() {
+            // When agents wait between steps (so the games can be watched), a single step is played per run, then the worker is released during the wait.
+            int stepCount = waitMillisBetweenSteps > 0 ? 1 : Constants.AI_STEPS_PER_WORKER_SLICE;
+
+            for (int k = 0; k < stepCount && !game.isGameOver() && isRunning.get(); k++) {
+                if (stepMode == StepMode.PLACEMENT) {
+                    performNextPlacement(game, agent);
+                } else {
+                    performNextAction(game, agent);
+                }
+            }
+
+            if (game.isGameOver()) {
+                LOG.info("Agent [{}] has finished its game", agent::getName);
+
+                if (result.complete(game.getScore())) {
+                    try {
+                        if (gameOverCallback != null) {
+                            gameOverCallback.call(game, agent);
+                        }
+                    } catch (Exception e) {
+                        LOG.error("An error occurred while handling the end of an agent's game", e);
+                    }
+
+                    handleGameOver();
+                }
+            } else {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (!isRunning.get()) {
+                return;
+            }
+
+            nextRun = waitMillisBetweenSteps > 0 ? WORKERS.schedule(this, waitMillisBetweenSteps, TimeUnit.MILLISECONDS) : WORKERS.submit(this);
+        }
+
+        private void cancel() {
+            Future<?> run = nextRun;
+
+            if (run != null) {
+                run.cancel(false);
+            }
+
+            result.cancel(false);
+        }
+    }
 }
@@ -0,0 +1,57 @@
+package edu.vbu.tetris_with_ai.ai;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <pre>
+ * Bounded cache of game scores, keyed by whatever fully determines a game's outcome: the (quantised) weights of the agent,
+ * the seed of the piece sequence and the game limits (see {@link GeneticAgentsMaster}).
+ * Games whose score is known don't have to be replayed, e.g. for elite agents or for children identical to an already evaluated agent.
+ *
+ * The least recently used scores are evicted first.
+ * </pre>
+ */
+public final class FitnessCache {
+
+    private final Map<Long, Double> scores;
+
+    private long hitCount;
+    private long missCount;
+
+    public FitnessCache(int capacity) {
+        this.scores = new LinkedHashMap<Long, Double>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Double> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return the cached score, or null if there's none.
+     */
+    public synchronized Double get(long key) {
+        Double score = scores.get(key);
+
+        if (score != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+
+        return score;
+    }
+
+    public synchronized void put(long key, double score) {
+        scores.put(key, score);
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+}
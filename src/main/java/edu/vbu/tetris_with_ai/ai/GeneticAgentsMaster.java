@@ -1,114 +1,593 @@
 package edu.vbu.tetris_with_ai.ai;
 
+import edu.vbu.tetris_with_ai.ai.features.BoardFeature;
+import edu.vbu.tetris_with_ai.ai.features.FeatureExtractor;
+import edu.vbu.tetris_with_ai.ai.optimizers.GeneticOptimizer;
+import edu.vbu.tetris_with_ai.ai.optimizers.Optimizer;
 import edu.vbu.tetris_with_ai.core.TetrisGame;
-import edu.vbu.tetris_with_ai.utils.Pair;
+import edu.vbu.tetris_with_ai.core.ZobristKeys;
+import edu.vbu.tetris_with_ai.core.shapes.PieceGenerator;
+import edu.vbu.tetris_with_ai.utils.Constants;
+import edu.vbu.tetris_with_ai.utils.MathUtils;
+import edu.vbu.tetris_with_ai.utils.TetrisUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
+/**
+ * <pre>
+ * Evolves a population of genetic agents, one game per agent.
+ * The weights of the agents are searched by an {@link Optimizer} (a genetic algorithm by default, see {@link #setOptimizer(Optimizer)}),
+ * which is asked for the weights of every new agent, then told the fitness of the agent once it has played all its games.
+ *
+ * Within a generation, every agent plays the same K pre-generated piece sequences (one round of games per sequence),
+ * so agents are ranked by their mean score over identical conditions instead of by the luck of their pieces.
+ *
+ * Generations can also be raced (successive halving, see {@link #setRacingSettings(int, int)}): all agents first play with a small piece budget,
+ * then only the best fraction of them plays again with a larger budget, and so on up to the full game limits.
+ * Agents are then ranked by the last tier they reached, then by their fitness in that tier.
+ *
+ * Scores are cached per agent weights, piece sequence and game limits (see {@link FitnessCache}): a game whose score is already known is not replayed
+ * (it simply stays over while the other games run).
+ * By default every generation plays K new sequences, so the cache only helps within a generation. Some sequences can be kept for the next generation
+ * instead (see {@link #setEvaluationSettings(int, int, PieceGenerator.Mode)}): the surviving agents then replay them for free,
+ * but the population trains on nearly the same pieces for several generations, which favours weights overfitted to these sequences.
+ *
+ * Bred agents either search the placements of the current piece only, or look at the upcoming piece too (see {@link #setSearchMode(SearchMode, ForkJoinPool)}).
+ * </pre>
+ */
 public class GeneticAgentsMaster extends AgentsMaster {
 
     private static final Logger LOG = LogManager.getLogger(GeneticAlgoAgent.class);
 
+    public enum EvolutionMode {
+        /** All the agents of a generation play all their games, then the whole population is bred at once. */
+        GENERATIONAL,
+
+        /**
+         * Each agent joins the population as soon as it has played all its games, and a new child takes its game right away,
+         * so no worker waits for the slowest game. The piece sequences are then the same for the whole run.
+         */
+        STEADY_STATE
+    }
+
+    public enum SearchMode {
+        /** Agents evaluate the placements of the current piece (see {@link GeneticAlgoAgent}). */
+        CURRENT_PIECE,
+
+        /** Agents evaluate every pair of placements of the current and the upcoming pieces (see {@link LookaheadAgent}). */
+        WITH_UPCOMING_PIECE
+    }
+
     private int currentGeneration;
     private double bestScore;          // across generations.
 
     private TetrisGame previousTopGame;
 
+    private final Random random;        // picks the parents of each child and seeds the piece sequences.
+
+    private int evaluationSequenceCount;
+    private int keptSequenceCount;          // sequences of a generation replayed by the next one.
+    private PieceGenerator.Mode pieceGeneratorMode;
+    private byte[][] pieceSequences;    // shared by every game of the current generation.
+    private long[] pieceSequenceSeeds;
+    private int currentSequenceIndex;
+    private final Map<Agent, double[]> agentScores;
+    private final Map<TetrisGame, Double> gameFitnesses;    // mean score of the agent of each game, once its generation is over.
+
+    private final FitnessCache fitnessCache;
+    private final Map<TetrisGame, Double> cachedGameScores;   // scores of the games which were not replayed, since they were found in the cache.
+
+    private FeatureExtractor[] features;    // weighted by every agent.
+    private Optimizer optimizer;
+    private double targetFitness;           // 0 if there's none.
+    private boolean isTargetFitnessReached;
+    private final CountDownLatch targetFitnessLatch;        // released once the target fitness is reached.
+    private long playedGameCount;           // games whose score was not found in the cache.
+
+    private EvolutionMode evolutionMode;
+    private SearchMode searchMode;
+    private ForkJoinPool searchPool;                        // null when the agents search on the threads of their games.
+    private final Map<TetrisGame, Integer> steadyStateSequenceIndices;              // sequence played by the current agent of each game.
+    private int evaluatedAgentCount;
+
+    private int racingInitialPieceBudget;                   // 0 when racing is disabled.
+    private int racingBudgetGrowthFactor;                   // the budget is multiplied by it, and the agents divided by it, at each tier.
+    private int racingFullPieceBudget;
+    private int currentRacingTier;
+    private final Map<Agent, Integer> racingTiers;          // last tier reached by each agent of the generation (0 if absent).
+
     public GeneticAgentsMaster() {
+        this(new Random());
+    }
+
+    public GeneticAgentsMaster(long seed) {
+        this(new Random(seed));
+    }
+
+    private GeneticAgentsMaster(Random random) {
+        this.random = random;
         this.currentGeneration = 1;
         this.bestScore = 0;
+        this.evaluationSequenceCount = Constants.AI_EVALUATION_SEQUENCE_COUNT;
+        this.keptSequenceCount = Constants.AI_EVALUATION_SEQUENCES_KEPT_PER_GENERATION;
+        this.pieceGeneratorMode = PieceGenerator.Mode.UNIFORM;
+        this.agentScores = new HashMap<>(10);
+        this.gameFitnesses = new HashMap<>(10);
+        this.fitnessCache = new FitnessCache(Constants.AI_FITNESS_CACHE_CAPACITY);
+        this.cachedGameScores = new HashMap<>(10);
+        this.features = BoardFeature.getDefaultFeatures();
+        this.evolutionMode = EvolutionMode.GENERATIONAL;
+        this.searchMode = SearchMode.CURRENT_PIECE;
+        this.steadyStateSequenceIndices = new HashMap<>(10);
+        this.racingTiers = new HashMap<>(10);
+        this.targetFitnessLatch = new CountDownLatch(1);
+
+        setGameOverCallback((game, agent) -> {
+            if (evolutionMode == EvolutionMode.STEADY_STATE) {
+                handleSteadyStateGameOver(game, agent);
+            }
+        });
 
         setAllGamesOverCallback(gamesAndAgents -> {
-            handleNewGeneration(gamesAndAgents);
-            waitForMillis(500L);
+            // The games of agents eliminated by racing are not replayed (they end as soon as they start), so their scores are ignored.
+            gamesAndAgents.forEach((game, agent) -> {
+                if (isRacing(agent)) {
+                    agentScores.computeIfAbsent(agent, key -> new double[pieceSequences.length])[currentSequenceIndex] = getScore(game, agent, currentSequenceIndex);
+                }
+            });
+
+            if (++currentSequenceIndex < pieceSequences.length) {
+                // Same agents, next piece sequence.
+                gamesAndAgents.forEach((game, agent) -> {
+                    if (isRacing(agent)) {
+                        resetGameOnCurrentSequence(game, agent);
+                    }
+                });
+            } else if (!promoteToNextRacingTier(gamesAndAgents)) {
+                handleNewGeneration(gamesAndAgents);
+                resetRacing();
+            }
+
+            // Leave some time to look at the results, unless nobody is watching.
+            if (getWaitMillisBetweenSteps() > 0) {
+                waitForMillis(500L);
+            }
+
             start();
 
-            LOG.info("Started generation #" + currentGeneration);
+            LOG.info("Started generation #{} (piece sequence {}/{})", currentGeneration, currentSequenceIndex + 1, pieceSequences.length);
         });
     }
 
+    /**
+     * Starts the first generation on its piece sequences (the following ones are started automatically).
+     */
+    @Override
+    public void start() throws IllegalStateException {
+        if (pieceSequences == null) {
+            generatePieceSequences();
+            getGamesAndAgents().forEach(this::resetGameOnCurrentSequence);
+
+            if (optimizer == null) {
+                optimizer = new GeneticOptimizer(features.length, getGamesAndAgents().size(), evolutionMode == EvolutionMode.STEADY_STATE, random.nextLong());
+            }
+
+            LOG.info("Searching the weights of the agents with optimizer '{}'", optimizer.getName());
+            getGamesAndAgents().keySet().forEach(game -> steadyStateSequenceIndices.put(game, 0));
+
+            if (racingInitialPieceBudget > 0) {
+                long maxPieceCount = getGamePieceLimit() > 0 ? getGamePieceLimit() : getGameTickLimit();   // a piece takes at least one tick.
+                racingFullPieceBudget = (int) Math.min(maxPieceCount > 0 ? maxPieceCount : Long.MAX_VALUE, Constants.AI_EVALUATION_SEQUENCE_MAX_LENGTH);
+
+                resetRacing();
+            }
+        }
+
+        super.start();
+    }
+
+    /**
+     * Only used by the {@link EvolutionMode#GENERATIONAL} mode.
+     *
+     * @param initialPieceBudget  number of pieces played by every agent in the first tier (0 disables racing).
+     * @param budgetGrowthFactor  the piece budget is multiplied by this factor from one tier to the next, while the number of agents is divided by it.
+     * @throws IllegalStateException if the first generation has already started.
+     */
+    public void setRacingSettings(int initialPieceBudget, int budgetGrowthFactor) throws IllegalStateException {
+        if (pieceSequences != null) {
+            throw new IllegalStateException("Cannot change the racing settings once the first generation has started");
+        }
+        if (budgetGrowthFactor < 2) {
+            throw new IllegalArgumentException("The budget growth factor of racing must be at least 2, got " + budgetGrowthFactor);
+        }
+
+        this.racingInitialPieceBudget = initialPieceBudget;
+        this.racingBudgetGrowthFactor = budgetGrowthFactor;
+    }
+
+    /**
+     * @param features weighted by the agents bred by this master (the initial agents must use the same ones), {@link BoardFeature#getDefaultFeatures()} by default.
+     * @throws IllegalStateException if the first generation has already started.
+     */
+    public void setFeatures(FeatureExtractor... features) throws IllegalStateException {
+        if (pieceSequences != null) {
+            throw new IllegalStateException("Cannot change the features once the first generation has started");
+        }
+
+        this.features = features.clone();
+    }
+
+    public FeatureExtractor[] getFeatures() {
+        return features.clone();
+    }
+
+    /**
+     * @param optimizer searches the weights of the agents (one per feature), its population size (or batch size) having to be the number of games.
+     * @throws IllegalStateException if the first generation has already started.
+     */
+    public void setOptimizer(Optimizer optimizer) throws IllegalStateException {
+        if (pieceSequences != null) {
+            throw new IllegalStateException("Cannot change the optimizer once the first generation has started");
+        }
+
+        this.optimizer = optimizer;
+    }
+
+    /**
+     * The number of games played until an agent reaches this fitness is logged, to compare optimizers.
+     *
+     * @param targetFitness 0 for none.
+     */
+    public void setTargetFitness(double targetFitness) {
+        this.targetFitness = targetFitness;
+    }
+
+    /**
+     * Blocks the calling thread until an agent reaches the target fitness, or forever if there is none.
+     */
+    public void awaitTargetFitness() throws InterruptedException {
+        targetFitnessLatch.await();
+    }
+
+    /**
+     * @throws IllegalStateException if the first generation has already started.
+     */
+    public void setEvolutionMode(EvolutionMode evolutionMode) throws IllegalStateException {
+        if (pieceSequences != null) {
+            throw new IllegalStateException("Cannot change the evolution mode once the first generation has started");
+        }
+
+        this.evolutionMode = evolutionMode;
+    }
+
+    /**
+     * @param searchPool shares out the searches of {@link SearchMode#WITH_UPCOMING_PIECE} agents, null to search on the threads of their games
+     *                   (best when there are at least as many games as cores).
+     * @throws IllegalStateException if the first generation has already started.
+     */
+    public void setSearchMode(SearchMode searchMode, ForkJoinPool searchPool) throws IllegalStateException {
+        if (pieceSequences != null) {
+            throw new IllegalStateException("Cannot change the search mode once the first generation has started");
+        }
+
+        this.searchMode = searchMode;
+        this.searchPool = searchPool;
+    }
+
+    /**
+     * @param seed seed of the random weights of the agent.
+     * @return an agent of the kind bred by this master (see {@link #setSearchMode(SearchMode, ForkJoinPool)}), weighting its features.
+     */
+    public GeneticAlgoAgent newAgent(long id, long seed) {
+        return searchMode == SearchMode.WITH_UPCOMING_PIECE ? new LookaheadAgent(id, features, seed, searchPool) : new GeneticAlgoAgent(id, features, seed);
+    }
+
+    /**
+     * @param evaluationSequenceCount number of piece sequences played by every agent of a generation.
+     * @param keptSequenceCount       number of these sequences (the most recent ones) played again by the next generation, 0 to renew them all.
+     * @param pieceGeneratorMode      how the pieces of these sequences are generated.
+     * @throws IllegalStateException if the first generation has already started.
+     */
+    public void setEvaluationSettings(int evaluationSequenceCount, int keptSequenceCount, PieceGenerator.Mode pieceGeneratorMode) throws IllegalStateException {
+        if (pieceSequences != null) {
+            throw new IllegalStateException("Cannot change the evaluation settings once the first generation has started");
+        }
+        if (keptSequenceCount < 0 || keptSequenceCount >= evaluationSequenceCount) {
+            throw new IllegalArgumentException("Between 0 and " + (evaluationSequenceCount - 1) + " piece sequences can be kept from one generation to the next, got " + keptSequenceCount);
+        }
+
+        this.evaluationSequenceCount = evaluationSequenceCount;
+        this.keptSequenceCount = keptSequenceCount;
+        this.pieceGeneratorMode = pieceGeneratorMode;
+    }
+
     private void handleNewGeneration(Map<TetrisGame, Agent> gamesAndAgents) {
-        // Have the agents sorted in a list according to their corresponding game score (from highest to lowest).
+        // Have the agents sorted in a list according to their fitness (mean score over the piece sequences, from highest to lowest).
 
         Set<TetrisGame> games = gamesAndAgents.keySet();
-        List<TetrisGame> sortedGames = games.stream().sorted((game1, game2) -> Double.compare(game2.getScore(), game1.getScore())).collect(Collectors.toList());
 
-        List<GeneticAlgoAgent> sortedAgents = new ArrayList<>(games.size());
+        gameFitnesses.clear();
+        gamesAndAgents.forEach((game, agent) -> gameFitnesses.put(game, MathUtils.mean(agentScores.get(agent))));
 
-        sortedGames.forEach(game -> sortedAgents.add((GeneticAlgoAgent) gamesAndAgents.get(game)));
+        Comparator<TetrisGame> byRacingTier = Comparator.comparingInt(game -> racingTiers.getOrDefault(gamesAndAgents.get(game), 0));
+        Comparator<TetrisGame> byRacingTierThenFitness = byRacingTier.thenComparingDouble(gameFitnesses::get);
 
-        Iterator<TetrisGame> gameIterator = sortedGames.iterator();
-        TetrisGame topGame = gameIterator.next();
+        List<TetrisGame> sortedGames = games.stream().sorted(byRacingTierThenFitness.reversed()).collect(Collectors.toList());
 
-        markTopGame(topGame);
+        TetrisGame topGame = sortedGames.get(0);
+        GeneticAlgoAgent topAgent = (GeneticAlgoAgent) gamesAndAgents.get(topGame);
 
-        topGame = previousTopGame;  // they're identical now.
+        markTopGame(topGame);
 
         // Update generation data.
 
+        logSearchUsage();
+        GeneticAlgoAgent.getTranspositionTable().incrementAge();
+
+        updateBestScore(gameFitnesses.get(topGame));
+
         currentGeneration++;
 
-        if (topGame.getScore() > bestScore) {
-            bestScore = topGame.getScore();
+        sortedGames.forEach(game -> {
+            Agent agent = gamesAndAgents.get(game);
+            double[] scores = agentScores.get(agent);
+
+            LOG.info("Fitness of agent [{}]: {} +/- {} (95% confidence, {} games)", agent::getName, () -> MathUtils.mean(scores), () -> MathUtils.confidenceHalfWidth(scores), () -> scores.length);
+        });
+
+        LOG.info("Games ordered by their score: [{}]", () -> sortedGames);
+        LOG.info("Top game of generation #" + currentGeneration + " is '" + topAgent.getName() + "'");
+
+        // Tell the optimizer how every agent did. When racing, eliminated agents played smaller budgets than the others, so their rank is told instead.
+        for (int k = 0; k < sortedGames.size(); k++) {
+            TetrisGame game = sortedGames.get(k);
+            double fitness = racingInitialPieceBudget > 0 ? -k : gameFitnesses.get(game);
+
+            optimizer.tell(((GeneticAlgoAgent) gamesAndAgents.get(game)).getWeights(), fitness);
+        }
+
+        // The next generation is evaluated on partly renewed sequences.
+        agentScores.clear();
+        generatePieceSequences();
+
+        // The first genome asked goes to the top game (with the genetic algorithm, it's the top agent itself, which is then kept as is).
+        List<TetrisGame> nextGames = new ArrayList<>(sortedGames);
+        nextGames.remove(previousTopGame);
+        nextGames.add(0, previousTopGame);
+
+        for (TetrisGame nextGame : nextGames) {
+            double[] weights = optimizer.ask();
+            GeneticAlgoAgent nextAgent = topAgent.hasWeights(weights) ? topAgent : createAgent(weights);
+
+            resetGameOnCurrentSequence(nextGame, nextAgent);
+            addAgent(nextGame, nextAgent);
+        }
+    }
+
+    /**
+     * @return whether the given agent still plays in the current racing tier (always true when racing is disabled).
+     */
+    private boolean isRacing(Agent agent) {
+        return racingTiers.getOrDefault(agent, 0) == currentRacingTier;
+    }
+
+    /**
+     * Keeps the best agents of the current racing tier, and has them replay the piece sequences with a larger budget.
+     *
+     * @return false if there's no next tier (racing is disabled, or the full budget has been played).
+     */
+    private boolean promoteToNextRacingTier(Map<TetrisGame, Agent> gamesAndAgents) {
+        if (racingInitialPieceBudget <= 0 || getGamePieceLimit() >= racingFullPieceBudget) {
+            return false;
         }
 
-        // Remove the second half of the agent population (get rid of bad agents).
+        List<Agent> racingAgents = gamesAndAgents.values().stream()
+                .filter(this::isRacing)
+                .sorted((agent1, agent2) -> Double.compare(MathUtils.mean(agentScores.get(agent2)), MathUtils.mean(agentScores.get(agent1))))
+                .collect(Collectors.toList());
+
+        // At least two agents are kept, to have parents for the next generation.
+        int promotedAgentCount = Math.max(2, (racingAgents.size() + racingBudgetGrowthFactor - 1) / racingBudgetGrowthFactor);
+        int nextPieceBudget = (int) Math.min((long) getGamePieceLimit() * racingBudgetGrowthFactor, racingFullPieceBudget);
 
-        int agentCount = sortedAgents.size();
-        int halfAgentCount = agentCount / 2;
-        int agentIndex = 0;
-        Iterator<GeneticAlgoAgent> agentIterator = sortedAgents.iterator();
+        currentRacingTier++;
+        racingAgents.stream().limit(promotedAgentCount).forEach(agent -> racingTiers.put(agent, currentRacingTier));
 
-        while (agentIterator.hasNext()) {
-            agentIterator.next();
+        LOG.info("Racing: {} of {} agents promoted to tier #{} (budget of {} pieces)", Math.min(promotedAgentCount, racingAgents.size()), racingAgents.size(), currentRacingTier, nextPieceBudget);
 
-            if (agentIndex >= halfAgentCount) {
-                agentIterator.remove();
+        setGameLimits(getGameTickLimit(), nextPieceBudget);
+        currentSequenceIndex = 0;
+
+        gamesAndAgents.forEach((game, agent) -> {
+            if (isRacing(agent)) {
+                resetGameOnCurrentSequence(game, agent);
             }
+        });
+
+        return true;
+    }
 
-            agentIndex++;
+    /**
+     * Has every agent of the new generation start from the first racing tier.
+     */
+    private void resetRacing() {
+        currentRacingTier = 0;
+        racingTiers.clear();
+
+        if (racingInitialPieceBudget > 0) {
+            setGameLimits(getGameTickLimit(), Math.min(racingInitialPieceBudget, racingFullPieceBudget));
         }
+    }
 
-        // Keep the first agent (top one) for the next generation.
-        GeneticAlgoAgent topAgent = (GeneticAlgoAgent) gamesAndAgents.get(topGame);
-        addAgent(topGame, topAgent);
-        resetGame(topGame, "Tetris for random AI #" + topAgent.getId());
+    /**
+     * Scores the agent of the given game once it has played every sequence, then has a new child play this game.
+     * Called by the worker which finished the game, while the other games keep running.
+     */
+    private synchronized void handleSteadyStateGameOver(TetrisGame game, Agent agent) {
+        int sequenceIndex = steadyStateSequenceIndices.get(game);
 
-        LOG.info("Games ordered by their score: [{}]", () -> sortedGames);
-        LOG.info("Agents ordered by game score: [{}]", () -> sortedAgents);
-        LOG.info("Top game of generation #" + currentGeneration + " is '" + topAgent.getName() + "'");
+        agentScores.computeIfAbsent(agent, key -> new double[pieceSequences.length])[sequenceIndex] = getScore(game, agent, sequenceIndex);
 
-        // Breed the rest of the agent population (randomly) based on the current remaining generation half.
-        for (int k = 1; k < agentCount; k++) {
-            Pair<GeneticAlgoAgent, GeneticAlgoAgent> randomAgentPairFromPopulation = getRandomAgentPairFromPopulation(sortedAgents);
+        playNextSteadyStateGame(game, agent, sequenceIndex + 1);
+    }
 
-            GeneticAlgoAgent agent1 = randomAgentPairFromPopulation.getLeftValue();
-            GeneticAlgoAgent agent2 = randomAgentPairFromPopulation.getRightValue();
+    /**
+     * Has the given agent play the given sequence (or the first following one whose score is not cached) on the given game.
+     * Agents which have played every sequence are scored, and replaced by a new child.
+     */
+    private void playNextSteadyStateGame(TetrisGame game, Agent agent, int sequenceIndex) {
+        while (true) {
+            for (; sequenceIndex < pieceSequences.length; sequenceIndex++) {
+                if (resetGameOnSequence(game, agent, sequenceIndex)) {
+                    steadyStateSequenceIndices.put(game, sequenceIndex);
+                    restartGame(game, agent);
+
+                    return;
+                }
+
+                agentScores.computeIfAbsent(agent, key -> new double[pieceSequences.length])[sequenceIndex] = cachedGameScores.remove(game);
+            }
 
-            TetrisGame nextGame = gameIterator.next();
-            GeneticAlgoAgent childAgent = agent1.crossOver(agent2, getGameByAgent(gamesAndAgents, agent1), getGameByAgent(gamesAndAgents, agent2));
+            scoreSteadyStateAgent(agent);
 
-            resetGame(nextGame, "Tetris for random AI #" + childAgent.getId());
-            addAgent(nextGame, childAgent);
+            agent = breedSteadyStateChild();
+            sequenceIndex = 0;
         }
     }
 
-    private TetrisGame getGameByAgent(Map<TetrisGame, Agent> games, GeneticAlgoAgent agentFilter) {
-        return games.keySet().stream().filter(tetrisGame -> games.get(tetrisGame) == agentFilter).findFirst().orElse(null);
+    private void scoreSteadyStateAgent(Agent agent) {
+        double[] scores = agentScores.remove(agent);
+        double fitness = MathUtils.mean(scores);
+        int populationSize = getGamesAndAgents().size();
+
+        LOG.info("Fitness of agent [{}]: {} +/- {} (95% confidence, {} games)", agent::getName, () -> fitness, () -> MathUtils.confidenceHalfWidth(scores), () -> scores.length);
+
+        optimizer.tell(((GeneticAlgoAgent) agent).getWeights(), fitness);
+        updateBestScore(fitness);
+
+        // A "generation" goes by every time as many agents as there are games have been evaluated.
+        if (++evaluatedAgentCount % populationSize == 0) {
+            logSearchUsage();
+            LOG.info("Reached generation #{} ({} agents evaluated, best fitness so far: {})", currentGeneration + 1, evaluatedAgentCount, bestScore);
+
+            GeneticAlgoAgent.getTranspositionTable().incrementAge();
+            currentGeneration++;
+        }
+    }
+
+    private GeneticAlgoAgent breedSteadyStateChild() {
+        return createAgent(optimizer.ask());
     }
 
-    private Pair<GeneticAlgoAgent, GeneticAlgoAgent> getRandomAgentPairFromPopulation(Collection<GeneticAlgoAgent> agents) {
-        List<GeneticAlgoAgent> copy = new ArrayList<>(agents);
-        int elementsToRandomlyPickCount = 2;
+    private GeneticAlgoAgent createAgent(double[] weights) {
+        long id = TetrisUtils.getNextAgentID();
+
+        return searchMode == SearchMode.WITH_UPCOMING_PIECE ? new LookaheadAgent(id, features, weights, searchPool) : new GeneticAlgoAgent(id, features, weights);
+    }
 
-        Collections.shuffle(copy);
+    private void logSearchUsage() {
+        TranspositionTable transpositionTable = GeneticAlgoAgent.getTranspositionTable();
 
-        List<GeneticAlgoAgent> pair = elementsToRandomlyPickCount > copy.size() ? copy.subList(0, copy.size()) : copy.subList(0, elementsToRandomlyPickCount);
+        LOG.info("Transposition table usage up to generation #{}: {} hits, {} misses", currentGeneration, transpositionTable.getHitCount(), transpositionTable.getMissCount());
+        LOG.info("Fitness cache usage up to generation #{}: {} hits, {} misses", currentGeneration, fitnessCache.getHitCount(), fitnessCache.getMissCount());
 
-        return new Pair<>(pair.get(0), pair.get(1));
+        if (searchMode == SearchMode.WITH_UPCOMING_PIECE) {
+            LOG.info("Lookahead search up to generation #{}: {} decisions, {} nodes/s, {} us per decision on average, {} decisions over the budget of {} us"
+                    , currentGeneration, LookaheadAgent.getDecisionCount(), String.format("%.0f", LookaheadAgent.getNodesPerSecond())
+                    , String.format("%.1f", LookaheadAgent.getMeanDecisionNanos() / 1e3), LookaheadAgent.getOverBudgetDecisionCount()
+                    , Constants.AI_LOOKAHEAD_DECISION_BUDGET_NANOS / 1_000L);
+        }
+    }
+
+    private void updateBestScore(double fitness) {
+        if (fitness > bestScore) {
+            bestScore = fitness;
+        }
+
+        if (targetFitness > 0 && !isTargetFitnessReached && fitness >= targetFitness) {
+            isTargetFitnessReached = true;
+
+            LOG.info("Target fitness of {} reached by optimizer '{}' after {} games played (generation #{})", targetFitness, optimizer.getName(), playedGameCount, currentGeneration);
+            targetFitnessLatch.countDown();
+        }
+    }
+
+    private void generatePieceSequences() {
+        long maxPieceCount = getGamePieceLimit() > 0 ? getGamePieceLimit() : getGameTickLimit();   // a piece takes at least one tick.
+        int sequenceLength = (int) Math.min(maxPieceCount > 0 ? maxPieceCount + 1 : Long.MAX_VALUE, Constants.AI_EVALUATION_SEQUENCE_MAX_LENGTH);   // + the upcoming piece.
+
+        byte[][] previousPieceSequences = pieceSequences;
+        long[] previousPieceSequenceSeeds = pieceSequenceSeeds;
+
+        pieceSequences = new byte[evaluationSequenceCount][];
+        pieceSequenceSeeds = new long[evaluationSequenceCount];
+        currentSequenceIndex = 0;
+
+        // Only the oldest sequences are replaced, so the agents kept from the previous generation have some of their scores cached already.
+        int keptSequenceCount = previousPieceSequences != null ? this.keptSequenceCount : 0;
+
+        for (int k = 0; k < evaluationSequenceCount; k++) {
+            if (k < keptSequenceCount) {
+                pieceSequenceSeeds[k] = previousPieceSequenceSeeds[k + evaluationSequenceCount - keptSequenceCount];
+                pieceSequences[k] = previousPieceSequences[k + evaluationSequenceCount - keptSequenceCount];
+            } else {
+                pieceSequenceSeeds[k] = random.nextLong();
+                pieceSequences[k] = new PieceGenerator(pieceSequenceSeeds[k], pieceGeneratorMode).newSequence(sequenceLength);
+            }
+        }
+    }
+
+    private void resetGameOnCurrentSequence(TetrisGame game, Agent agent) {
+        resetGameOnSequence(game, agent, currentSequenceIndex);
+    }
+
+    /**
+     * @return false if the game was not reset, since the score of the agent on this sequence is cached (the game then stays over).
+     */
+    private boolean resetGameOnSequence(TetrisGame game, Agent agent, int sequenceIndex) {
+        Double cachedScore = game.isGameOver() ? fitnessCache.get(getFitnessCacheKey(agent, sequenceIndex)) : null;
+
+        if (cachedScore != null) {
+            cachedGameScores.put(game, cachedScore);
+
+            return false;
+        }
+
+        game.setPieceGenerator(new PieceGenerator(pieceSequences[sequenceIndex]));
+        resetGame(game, "Tetris for genetic AI #" + agent.getId());
+
+        return true;
+    }
+
+    /**
+     * @return the score of the given game, which the agent has just played (or which was found in the cache).
+     */
+    private double getScore(TetrisGame game, Agent agent, int sequenceIndex) {
+        Double cachedScore = cachedGameScores.remove(game);
+
+        if (cachedScore != null) {
+            return cachedScore;
+        }
+
+        double score = getGameResult(game).join();
+        playedGameCount++;
+        fitnessCache.put(getFitnessCacheKey(agent, sequenceIndex), score);
+
+        return score;
+    }
+
+    private long getFitnessCacheKey(Agent agent, int sequenceIndex) {
+        long key = ((GeneticAlgoAgent) agent).getQuantisedWeightsKey(Constants.AI_FITNESS_CACHE_WEIGHT_QUANTUM);
+        key = ZobristKeys.mix(key ^ pieceSequenceSeeds[sequenceIndex]);
+        key = ZobristKeys.mix(key ^ pieceGeneratorMode.ordinal());
+        key = ZobristKeys.mix(key ^ getGamePieceLimit());
+
+        return ZobristKeys.mix(key ^ getGameTickLimit());
     }
 
     public int getCurrentGeneration() {
@@ -119,13 +598,17 @@ public class GeneticAgentsMaster extends AgentsMaster {
         return bestScore;
     }
 
+    public long getPlayedGameCount() {
+        return playedGameCount;
+    }
+
     public void markTopGame(TetrisGame newTopGame) {
         if (previousTopGame == null) {
             newTopGame.markAsTopGame(true);
 
             previousTopGame = newTopGame;
         } else {
-            if (previousTopGame != newTopGame && previousTopGame.getScore() < newTopGame.getScore()) {
+            if (previousTopGame != newTopGame && gameFitnesses.get(previousTopGame) < gameFitnesses.get(newTopGame)) {
                 newTopGame.markAsTopGame(true);
 
                 previousTopGame.markAsTopGame(false);
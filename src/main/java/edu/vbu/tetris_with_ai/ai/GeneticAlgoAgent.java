@@ -1,102 +1,101 @@
 package edu.vbu.tetris_with_ai.ai;
 
+import edu.vbu.tetris_with_ai.ai.features.BoardFeature;
+import edu.vbu.tetris_with_ai.ai.features.FeatureExtractor;
 import edu.vbu.tetris_with_ai.core.Action;
+import edu.vbu.tetris_with_ai.core.Board;
+import edu.vbu.tetris_with_ai.core.Placement;
 import edu.vbu.tetris_with_ai.core.TetrisGame;
-import edu.vbu.tetris_with_ai.core.shapes.Shape;
-import edu.vbu.tetris_with_ai.ui.GameGrid;
+import edu.vbu.tetris_with_ai.core.ZobristKeys;
+import edu.vbu.tetris_with_ai.core.shapes.ShapeKind;
+import edu.vbu.tetris_with_ai.core.shapes.ShapeRotations;
 import edu.vbu.tetris_with_ai.utils.Constants;
-import edu.vbu.tetris_with_ai.utils.MathUtils;
-import edu.vbu.tetris_with_ai.utils.TetrisUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import javax.swing.*;
 import java.util.Arrays;
 import java.util.Queue;
+import java.util.SplittableRandom;
 
 /**
  * <pre>
  * Helpful article: <a href=https://codemyroad.wordpress.com/2013/04/14/tetris-ai-the-near-perfect-player/>click here</a>
+ *
+ * Placements are evaluated by a weighted sum of board features (see {@link FeatureExtractor}), the weights being the genome of the agent.
  * </pre>
  */
 public class GeneticAlgoAgent extends Agent {
 
     private static final Logger LOG = LogManager.getLogger(GeneticAlgoAgent.class);
 
-    private double weightForHeight;
-    private double weightForHoles;
-    private double weightForBumpiness;
-    private double weightForLineClear;
+    // Best placements found so far, shared by all agents (an entry only matches the weights it was computed with).
+    private static final TranspositionTable TRANSPOSITION_TABLE = new TranspositionTable(Constants.AI_TRANSPOSITION_TABLE_CAPACITY);
 
-    public GeneticAlgoAgent(long id) {
-        this(id, true);
-    }
-
-    private GeneticAlgoAgent(long id, boolean logGeneratedWeights) {
-        super(id);
-
-        weightForHeight = getRandomWeight();
-        weightForHoles = getRandomWeight();
-        weightForBumpiness = getRandomWeight();
-        weightForLineClear = getRandomWeight();
+    private final FeatureExtractor[] features;
+    private final double[] weights;       // one per feature.
+    private final long weightsKey;        // identifies these weights in the transposition table.
 
-//        weightForHeight = 0.5580935497187252;
-//        weightForHoles = 0.5297341239323762;
-//        weightForBumpiness = 0.2627401585737541;
-//        weightForLineClear = 0.7893537470350246;
+    // Reused for every simulated placement, so that evaluating a candidate requires no heap allocation.
+    private Board scratchBoard;
 
-        if (logGeneratedWeights) {
-            logWeights();
-        }
+    public GeneticAlgoAgent(long id) {
+        this(id, BoardFeature.getDefaultFeatures(), new SplittableRandom());
     }
 
-    @Override
-    protected void determineActions(Queue<Action> actionQueueToFill, int actionAmount, TetrisGame game) {
-        // Fill action queue based on the agent's prediction.
+    /**
+     * @param seed seed of the random weights of this agent.
+     */
+    public GeneticAlgoAgent(long id, FeatureExtractor[] features, long seed) {
+        this(id, features, new SplittableRandom(seed));
+    }
 
-        double bestFitness = -999999999.0;
-        int bestRotationCount = -1;             // determines how many rotations (clockwise) need to be applied to the piece.
-        int bestPositionOnRow = -1;             // determines how many moves to the left or to the right need to be applied to the piece.
+    /**
+     * @param weights genome of this agent, one weight per feature (e.g. asked from an {@link edu.vbu.tetris_with_ai.ai.optimizers.Optimizer}).
+     */
+    public GeneticAlgoAgent(long id, FeatureExtractor[] features, double[] weights) {
+        super(id);
 
-        GameGrid gameGrid = game.getGameGrid();
+        if (weights.length != features.length) {
+            throw new IllegalArgumentException("Expected " + features.length + " weights, got " + weights.length);
+        }
 
-        Shape pieceClone = gameGrid.getCurrFallPiece().duplicate();
-        int initialPositionOnRow = gameGrid.getFallingPieceColumnIndex();
+        this.features = features;
+        this.weights = weights.clone();
+        this.weightsKey = computeWeightsKey(features, this.weights);
 
-        // Iterate through all rotations (0th to 3rd, since 4th is equivalent to no rotation).
-        for (int rotationIter = 0; rotationIter < 4; rotationIter++) {
-            // Now iterate through all possible positions on the current row, using the current rotation.
-            int possibleSlotsToOccupyOnRow = gameGrid.getColumnCount() - pieceClone.getHorizontalLength() + 1;
-            int emptyCellsInPieceSchemaOffset = pieceClone.getHorizontalEmptyCellsOffset();
+        logWeights();
+    }
 
-            for (int positionX = 0; positionX < possibleSlotsToOccupyOnRow; positionX++) {
-                int truePositionX = positionX - emptyCellsInPieceSchemaOffset;
-                GameGrid futureGrid = gameGrid.getFutureGridWithCurrentPieceInFinalPosition(pieceClone, truePositionX);
+    private GeneticAlgoAgent(long id, FeatureExtractor[] features, SplittableRandom random) {
+        super(id, random);
 
-//                game.setGameGrid(futureGrid);
+        this.features = features;
+        this.weights = new double[features.length];
 
-                double fitness = getFitness(futureGrid);
+        for (int k = 0; k < weights.length; k++) {
+            weights[k] = getRandomWeight();
+        }
+        this.weightsKey = computeWeightsKey(features, weights);
 
-                if (fitness > bestFitness) {
-                    bestFitness = fitness;
-                    bestRotationCount = rotationIter;
-                    bestPositionOnRow = truePositionX;
-                }
-            }
+        logWeights();
+    }
 
-            pieceClone.rotateRight();
-        }
+    @Override
+    protected void determineActions(Queue<Action> actionQueueToFill, int actionAmount, TetrisGame game) {
+        // Fill action queue based on the agent's prediction.
 
-//        game.setGameGrid(gameGrid);
+        Board board = game.getBoard();
+        Placement bestPlacement = determinePlacement(game);
 
-        // Determine the actions based on the above stats.
+        int bestRotationCount = (bestPlacement.getOrientation() - board.getFallingPieceOrientation() + ShapeRotations.ORIENTATION_COUNT) % ShapeRotations.ORIENTATION_COUNT;
 
         for (int k = 0; k < bestRotationCount; k++) {
             actionQueueToFill.add(Action.ROTATE_RIGHT_ONCE);
         }
 
-        int deltaMovesOnRow = Math.abs(initialPositionOnRow - bestPositionOnRow);
-        Action moveAction = initialPositionOnRow < bestPositionOnRow ? Action.MOVE_RIGHT_ONCE : Action.MOVE_LEFT_ONCE;
+        int initialPositionOnRow = board.getFallingPieceColumnIndex();
+        int deltaMovesOnRow = Math.abs(initialPositionOnRow - bestPlacement.getColumnIndex());
+        Action moveAction = initialPositionOnRow < bestPlacement.getColumnIndex() ? Action.MOVE_RIGHT_ONCE : Action.MOVE_LEFT_ONCE;
 
         for (int k = 0; k < deltaMovesOnRow; k++) {
             actionQueueToFill.add(moveAction);
@@ -106,164 +105,158 @@ public class GeneticAlgoAgent extends Agent {
     }
 
     @Override
-    protected String getName() {
-        return "genetic-AI-" + getId();
-    }
+    protected Placement determinePlacement(TetrisGame game) {
+        double bestFitness = -999999999.0;
+        int bestOrientation;
+        int bestPositionOnRow;                  // determines how many moves to the left or to the right need to be applied to the piece.
+
+        Board board = game.getBoard();
+
+        int pieceKind = board.getFallingPieceKind().getId();
+        int initialOrientation = board.getFallingPieceOrientation();
+        int initialPositionOnRow = board.getFallingPieceColumnIndex();
+        int initialPositionOnColumn = board.getFallingPieceRowIndex();
+
+        // The best placement only depends on the locked cells, the piece and the weights, as long as the piece has not started falling.
+        boolean isPieceAtTop = initialPositionOnColumn == 0;
+        long stateKey = board.getZobristKey(pieceKind, ShapeKind.NULL.getId()) ^ getWeightsKey();
+        long cachedEntry = isPieceAtTop ? TRANSPOSITION_TABLE.probe(stateKey) : TranspositionTable.NO_ENTRY;
+
+        if (cachedEntry != TranspositionTable.NO_ENTRY) {
+            bestOrientation = TranspositionTable.getOrientation(cachedEntry);
+            bestPositionOnRow = TranspositionTable.getColumnIndex(cachedEntry);
+        } else {
+            bestOrientation = initialOrientation;
+            bestPositionOnRow = initialPositionOnRow;
+
+            if (scratchBoard == null) {
+                scratchBoard = new Board(board.getColumnCount(), board.getRowCount());
+            }
 
-    private double getFitness(GameGrid gameGrid) {
-        double score = 0.0;
-        int clearedLinesLastCycle = getCurrentCompleteRowIndices(gameGrid);
-        int[] gameGridColumnHeights = getGameGridColumnHeights(gameGrid);
+            scratchBoard.copyFrom(board);
 
-        score -= weightForHeight * Arrays.stream(gameGridColumnHeights).sum();
-        score -= weightForHoles * getGameGridHoleCount(gameGrid);
-        score -= weightForBumpiness * getGameGridHorizontalBumpiness(gameGridColumnHeights);
-        score += weightForLineClear * clearedLinesLastCycle;
+            // Iterate through all distinct rotations (at most 0th to 3rd, since 4th is equivalent to no rotation).
+            int uniqueRotationCount = ShapeRotations.getUniqueOrientationCount(pieceKind);
 
-        return score;
-    }
+            for (int rotationIter = 0; rotationIter < uniqueRotationCount; rotationIter++) {
+                int orientation = (initialOrientation + rotationIter) % ShapeRotations.ORIENTATION_COUNT;
 
-    /**
-     * "Mix" this agent with another one to produce a new "child" agent.
-     *
-     * @param otherParent the other "parent" agent.
-     * @return the "child" agent.
-     */
-    public GeneticAlgoAgent crossOver(GeneticAlgoAgent otherParent, TetrisGame agent1Game, TetrisGame agent2Game) {
-        GeneticAlgoAgent child = new GeneticAlgoAgent(TetrisUtils.getNextAgentID(), false);
+                // Now iterate through all possible positions on the current row, using the current rotation.
+                int possibleSlotsToOccupyOnRow = board.getColumnCount() - ShapeRotations.getWidth(pieceKind, orientation) + 1;
+                int emptyCellsInPieceSchemaOffset = ShapeRotations.getLeftOffset(pieceKind, orientation);
 
-        {
-            child.weightForHeight = (this.weightForHeight + otherParent.weightForHeight) / 2.0;
-        }
-        {
-            child.weightForHoles = (this.weightForHoles + otherParent.weightForHoles) / 2.0;
-        }
-        {
-            child.weightForBumpiness = (this.weightForBumpiness + otherParent.weightForBumpiness) / 2.0;
-        }
-        {
-            child.weightForLineClear = (this.weightForLineClear + otherParent.weightForLineClear) / 2.0;
-        }
+                for (int positionX = 0; positionX < possibleSlotsToOccupyOnRow; positionX++) {
+                    int truePositionX = positionX - emptyCellsInPieceSchemaOffset;
+                    if (scratchBoard.place(pieceKind, orientation, initialPositionOnColumn, truePositionX) < 0) {
+                        continue;   // the piece overlaps the locked cells there.
+                    }
 
-        // Mutate the weights of the child, randomly.
-        if (RANDOM.nextDouble() < Constants.AI_GENES_MUTATION_RATE) {
-            double factor = RANDOM.nextBoolean() ? 1 : -1;
-            child.weightForHeight += getRandomWeight() / 2.0 * factor;
-        }
-        if (RANDOM.nextDouble() < Constants.AI_GENES_MUTATION_RATE) {
-            double factor = RANDOM.nextBoolean() ? 1 : -1;
-            child.weightForHoles += getRandomWeight() / 2.0 * factor;
-        }
-        if (RANDOM.nextDouble() < Constants.AI_GENES_MUTATION_RATE) {
-            double factor = RANDOM.nextBoolean() ? 1 : -1;
-            child.weightForBumpiness += getRandomWeight() / 2.0 * factor;
-        }
-        if (RANDOM.nextDouble() < Constants.AI_GENES_MUTATION_RATE) {
-            double factor = RANDOM.nextBoolean() ? 1 : -1;
-            child.weightForLineClear += getRandomWeight() / 2.0 * factor;
-        }
+                    double fitness = getFitness(scratchBoard);
 
-        child.clampWeights();
-        child.logWeights();
+                    scratchBoard.undo();
 
-        return child;
-    }
+                    if (fitness > bestFitness) {
+                        bestFitness = fitness;
+                        bestOrientation = orientation;
+                        bestPositionOnRow = truePositionX;
+                    }
+                }
+            }
 
-    ////////////////////////////////////////////////////////////////////////////////
-    // Utils:
-    ////////////////////////////////////////////////////////////////////////////////
+            if (isPieceAtTop) {
+                TRANSPOSITION_TABLE.store(stateKey, (float) bestFitness, bestOrientation, bestPositionOnRow, 1);
+            }
+        }
 
-    private int getCurrentCompleteRowIndices(GameGrid gameGrid) {
-        return gameGrid.getCurrentCompleteRowIndices().size();
+        return new Placement(bestOrientation, bestPositionOnRow);
     }
 
-    private int[] getGameGridColumnHeights(GameGrid gameGrid) {
-        int[] heights = new int[gameGrid.getColumnCount()];
+    @Override
+    protected String getName() {
+        return "genetic-AI-" + getId();
+    }
 
-        for (int columnIndex = 0; columnIndex < gameGrid.getColumnCount(); columnIndex++) {
-            for (int rowIndex = 0; rowIndex < gameGrid.getRowCount(); rowIndex++) {
-                if (gameGrid.getPanelAtPosition(rowIndex, columnIndex).getBackground() == Constants.EMPTY_CELL_COLOUR) {
-                    heights[columnIndex] -= 1;
-                } else {
-                    break;
-                }
-            }
+    protected double getFitness(Board board) {
+        double score = 0.0;
 
-            heights[columnIndex] += gameGrid.getRowCount();
+        for (int k = 0; k < features.length; k++) {
+            score += weights[k] * features[k].extract(board);
         }
 
-        return heights;
+        return score;
     }
 
-    private int getGameGridHoleCount(GameGrid gameGrid) {
-        int count = 0;
+    ////////////////////////////////////////////////////////////////////////////////
+    // Utils:
+    ////////////////////////////////////////////////////////////////////////////////
 
-        for (int columnIndex = 0; columnIndex < gameGrid.getColumnCount(); columnIndex++) {
-            boolean foundTopMostPiece = false;
+    protected long getWeightsKey() {
+        return weightsKey;
+    }
 
-            for (int rowIndex = 0; rowIndex < gameGrid.getRowCount(); rowIndex++) {
-                JPanel pieceAtPosition = gameGrid.getPanelAtPosition(rowIndex, columnIndex);
+    private static long computeWeightsKey(FeatureExtractor[] features, double[] weights) {
+        long key = features.length;
 
-                if (pieceAtPosition.getBackground() != Constants.EMPTY_CELL_COLOUR) {
-                    if (!foundTopMostPiece) {
-                        foundTopMostPiece = true;
-                    }
-                } else {
-                    if (foundTopMostPiece) {
-                        count++;
-                    }
-                }
-            }
+        for (int k = 0; k < weights.length; k++) {
+            key = ZobristKeys.mix(key ^ features[k].getName().hashCode() ^ Double.doubleToLongBits(weights[k]));
         }
 
-        return count;
+        return key;
     }
 
-    public int getGameGridHorizontalBumpiness(int[] gridColumnHeights) {
-        if (gridColumnHeights.length == 0) {
-            return 0;
-        } else if (gridColumnHeights.length == 1) {
-            return gridColumnHeights[0];
-        }
-
-        int bumpiness = 0;
+    /**
+     * @return a key shared by all the agents whose weights round to the same multiples of the given quantum.
+     */
+    public long getQuantisedWeightsKey(double quantum) {
+        long key = features.length;
 
-        for (int i = 1; i < gridColumnHeights.length; i++) {
-            bumpiness += Math.abs(gridColumnHeights[i - 1] - gridColumnHeights[i]);
+        for (int k = 0; k < weights.length; k++) {
+            key = ZobristKeys.mix(key ^ features[k].getName().hashCode() ^ Math.round(weights[k] / quantum));
         }
 
-        return bumpiness;
+        return key;
     }
 
-    private double getRandomWeight() {
-        return RANDOM.nextDouble() * 2.0f - 1.0f;    // map [0, 1] to [-1, 1]
+    public static TranspositionTable getTranspositionTable() {
+        return TRANSPOSITION_TABLE;
     }
 
-    private void clampWeights() {
-        weightForHeight = MathUtils.clamp(weightForHeight, -1.0, 1.0);
-        weightForHoles = MathUtils.clamp(weightForHoles, -1.0, 1.0);
-        weightForBumpiness = MathUtils.clamp(weightForBumpiness, -1.0, 1.0);
-        weightForLineClear = MathUtils.clamp(weightForLineClear, -1.0, 1.0);
+    private double getRandomWeight() {
+        return random.nextDouble() * 2.0f - 1.0f;    // map [0, 1] to [-1, 1]
     }
 
     private void logWeights() {
-        LOG.debug("Weights of agent [id = {}] for: height = {} | holes = {} | bumpiness = {} | lines = {}"
-                , this::getId, () -> weightForHeight, () -> weightForHoles, () -> weightForBumpiness, () -> weightForLineClear);
+        LOG.debug("Weights of agent [id = {}] for: {}", this::getId, this::getWeightsDescription);
     }
 
-    public double getWeightForHeight() {
-        return weightForHeight;
+    /**
+     * @return the weight of every feature, e.g. "height = 0.5 | holes = 0.7".
+     */
+    public String getWeightsDescription() {
+        StringBuilder description = new StringBuilder();
+
+        for (int k = 0; k < weights.length; k++) {
+            description.append(k > 0 ? " | " : "").append(features[k].getName()).append(" = ").append(weights[k]);
+        }
+
+        return description.toString();
     }
 
-    public double getWeightForHoles() {
-        return weightForHoles;
+    /**
+     * @return a copy of the weights of this agent, in the order of its features (the genome evolved by the optimizers).
+     */
+    public double[] getWeights() {
+        return weights.clone();
     }
 
-    public double getWeightForBumpiness() {
-        return weightForBumpiness;
+    public FeatureExtractor[] getFeatures() {
+        return features.clone();
     }
 
-    public double getWeightForLineClear() {
-        return weightForLineClear;
+    /**
+     * @return whether this agent has the given weights, without copying them.
+     */
+    public boolean hasWeights(double[] otherWeights) {
+        return Arrays.equals(weights, otherWeights);
     }
 }
@@ -0,0 +1,352 @@
+package edu.vbu.tetris_with_ai.ai;
+
+import edu.vbu.tetris_with_ai.ai.features.FeatureExtractor;
+import edu.vbu.tetris_with_ai.core.Board;
+import edu.vbu.tetris_with_ai.core.Orientation;
+import edu.vbu.tetris_with_ai.core.Placement;
+import edu.vbu.tetris_with_ai.core.TetrisGame;
+import edu.vbu.tetris_with_ai.core.shapes.ShapeKind;
+import edu.vbu.tetris_with_ai.core.shapes.ShapeRotations;
+import edu.vbu.tetris_with_ai.utils.Constants;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <pre>
+ * Genetic agent which also looks at the upcoming piece (see {@link TetrisGame#getUpcomingPieceKind()}):
+ * every placement of the current piece is combined with every placement of the upcoming one, and the current piece goes where the best pair starts.
+ * The boards of both plies are evaluated with the weights of the agent, like the boards of {@link GeneticAlgoAgent}.
+ *
+ * The placements of the current piece are first ranked by their own evaluation, and only the best ones are combined with the upcoming piece
+ * (see {@link Constants#AI_LOOKAHEAD_BEAM_WIDTH}), which saves most of the (roughly 1,600) leaf evaluations of a full search.
+ * Both pieces are played with {@link Board#place(int, int, int, int)} and taken back with {@link Board#undo()}, like in {@link GeneticAlgoAgent}:
+ * the rows completed by the current piece are cleared before the upcoming one lands, and placements which overlap the locked cells are skipped.
+ *
+ * The expanded placements can be shared out over a {@link ForkJoinPool}, each task searching on its own copy of the board.
+ * Search statistics (evaluated boards, time spent, decisions over the budget) are gathered over all agents, see {@link #getNodesPerSecond()}.
+ * </pre>
+ */
+public class LookaheadAgent extends GeneticAlgoAgent {
+
+    private static final int SEARCH_DEPTH = 2;
+
+    private static final LongAdder DECISION_COUNT = new LongAdder();
+    private static final LongAdder NODE_COUNT = new LongAdder();
+    private static final LongAdder SEARCH_NANOS = new LongAdder();
+    private static final LongAdder OVER_BUDGET_DECISION_COUNT = new LongAdder();
+
+    private final ForkJoinPool pool;    // null means the search runs on the calling thread.
+    private final int beamWidth;
+
+    // Reused for every decision, so that searching requires no heap allocation once the first decision is made.
+    private Board rootBoard;
+    private int[] candidateOrientations;    // placements of the current piece, best first.
+    private int[] candidateColumnIndices;
+    private double[] candidateFitnesses;
+    private int candidateCount;
+    private SecondPlyTask[] secondPlyTasks;
+    private RecursiveAction secondPlyRootTask;
+
+    /**
+     * @param seed seed of the random weights of this agent.
+     * @param pool shares out the second ply of every search, null to search on the thread of the game.
+     */
+    public LookaheadAgent(long id, FeatureExtractor[] features, long seed, ForkJoinPool pool) {
+        super(id, features, seed);
+
+        this.pool = pool;
+        this.beamWidth = Constants.AI_LOOKAHEAD_BEAM_WIDTH;
+    }
+
+    /**
+     * @param weights genome of this agent, one weight per feature.
+     * @param pool    shares out the second ply of every search, null to search on the thread of the game.
+     */
+    public LookaheadAgent(long id, FeatureExtractor[] features, double[] weights, ForkJoinPool pool) {
+        super(id, features, weights);
+
+        this.pool = pool;
+        this.beamWidth = Constants.AI_LOOKAHEAD_BEAM_WIDTH;
+    }
+
+    @Override
+    protected Placement determinePlacement(TetrisGame game) {
+        Board board = game.getBoard();
+
+        int pieceKind = board.getFallingPieceKind().getId();
+        int upcomingPieceKind = game.getUpcomingPieceKind().getId();
+
+        if (upcomingPieceKind == ShapeKind.NULL.getId()) {
+            return super.determinePlacement(game);
+        }
+
+        // Same as for a single piece: the result only depends on the locked cells, both pieces and the weights, as long as the piece has not started falling.
+        boolean isPieceAtTop = board.getFallingPieceRowIndex() == 0;
+        long stateKey = board.getZobristKey(pieceKind, upcomingPieceKind) ^ getWeightsKey();
+        TranspositionTable transpositionTable = getTranspositionTable();
+        long cachedEntry = isPieceAtTop ? transpositionTable.probe(stateKey) : TranspositionTable.NO_ENTRY;
+
+        if (cachedEntry != TranspositionTable.NO_ENTRY && TranspositionTable.getDepth(cachedEntry) >= SEARCH_DEPTH) {
+            return new Placement(TranspositionTable.getOrientation(cachedEntry), TranspositionTable.getColumnIndex(cachedEntry));
+        }
+
+        long startNanos = System.nanoTime();
+
+        prepareSearch(board);
+        rankFirstPly(pieceKind, board.getFallingPieceOrientation(), board.getFallingPieceRowIndex());
+
+        if (candidateCount == 0) {
+            // The piece fits nowhere, the game is lost whatever it does.
+            return new Placement(board.getFallingPieceOrientation(), board.getFallingPieceColumnIndex());
+        }
+
+        int expandedCount = beamWidth > 0 ? Math.min(beamWidth, candidateCount) : candidateCount;
+
+        for (SecondPlyTask task : secondPlyTasks) {
+            task.reinitialize();
+            task.prepare(pieceKind, board.getFallingPieceRowIndex(), upcomingPieceKind, expandedCount);
+        }
+
+        if (pool != null && secondPlyTasks.length > 1) {
+            secondPlyRootTask.reinitialize();
+            pool.invoke(secondPlyRootTask);
+        } else {
+            secondPlyTasks[0].invoke();
+        }
+
+        // Ties go to the placement with the best evaluation of its own, whichever task found them, so the result does not depend on the pool.
+        int bestCandidate = 0;
+        double bestFitness = Double.NEGATIVE_INFINITY;
+        long nodeCount = candidateCount;
+
+        for (SecondPlyTask task : secondPlyTasks) {
+            nodeCount += task.leafCount;
+
+            if (task.bestCandidate >= 0 && (task.bestFitness > bestFitness || task.bestFitness == bestFitness && task.bestCandidate < bestCandidate)) {
+                bestFitness = task.bestFitness;
+                bestCandidate = task.bestCandidate;
+            }
+        }
+
+        recordDecision(nodeCount, System.nanoTime() - startNanos);
+
+        if (isPieceAtTop) {
+            transpositionTable.store(stateKey, (float) bestFitness, candidateOrientations[bestCandidate], candidateColumnIndices[bestCandidate], SEARCH_DEPTH);
+        }
+
+        return new Placement(candidateOrientations[bestCandidate], candidateColumnIndices[bestCandidate]);
+    }
+
+    @Override
+    protected String getName() {
+        return "lookahead-AI-" + getId();
+    }
+
+    private void prepareSearch(Board board) {
+        if (rootBoard == null) {
+            int maxPlacementCount = ShapeRotations.ORIENTATION_COUNT * board.getColumnCount();
+            int taskCount = pool != null ? Math.max(1, pool.getParallelism()) : 1;
+
+            rootBoard = new Board(board.getColumnCount(), board.getRowCount());
+            candidateOrientations = new int[maxPlacementCount];
+            candidateColumnIndices = new int[maxPlacementCount];
+            candidateFitnesses = new double[maxPlacementCount];
+            secondPlyTasks = new SecondPlyTask[taskCount];
+
+            for (int t = 0; t < taskCount; t++) {
+                secondPlyTasks[t] = new SecondPlyTask(t, new Board(board.getColumnCount(), board.getRowCount()));
+            }
+
+            secondPlyRootTask = new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    ForkJoinTask.invokeAll(secondPlyTasks);
+                }
+            };
+        }
+
+        rootBoard.copyFrom(board);
+    }
+
+    /**
+     * Evaluates every placement of the current piece on its own, and sorts them from best to worst.
+     */
+    private void rankFirstPly(int pieceKind, int initialOrientation, int initialRowIndex) {
+        candidateCount = 0;
+
+        int uniqueRotationCount = ShapeRotations.getUniqueOrientationCount(pieceKind);
+
+        for (int rotationIter = 0; rotationIter < uniqueRotationCount; rotationIter++) {
+            int orientation = (initialOrientation + rotationIter) % ShapeRotations.ORIENTATION_COUNT;
+            int possibleSlotsToOccupyOnRow = rootBoard.getColumnCount() - ShapeRotations.getWidth(pieceKind, orientation) + 1;
+            int emptyCellsInPieceSchemaOffset = ShapeRotations.getLeftOffset(pieceKind, orientation);
+
+            for (int positionX = 0; positionX < possibleSlotsToOccupyOnRow; positionX++) {
+                int truePositionX = positionX - emptyCellsInPieceSchemaOffset;
+
+                if (rootBoard.place(pieceKind, orientation, initialRowIndex, truePositionX) < 0) {
+                    continue;   // the piece overlaps the locked cells there.
+                }
+
+                double fitness = getFitness(rootBoard);
+
+                rootBoard.undo();
+                insertCandidate(orientation, truePositionX, fitness);
+            }
+        }
+    }
+
+    /**
+     * Insertion sort (there are a few dozens of candidates at most): equally good candidates keep their enumeration order.
+     */
+    private void insertCandidate(int orientation, int columnIndex, double fitness) {
+        int k = candidateCount++;
+
+        while (k > 0 && candidateFitnesses[k - 1] < fitness) {
+            candidateOrientations[k] = candidateOrientations[k - 1];
+            candidateColumnIndices[k] = candidateColumnIndices[k - 1];
+            candidateFitnesses[k] = candidateFitnesses[k - 1];
+            k--;
+        }
+
+        candidateOrientations[k] = orientation;
+        candidateColumnIndices[k] = columnIndex;
+        candidateFitnesses[k] = fitness;
+    }
+
+    /**
+     * Combines every (task count)-th expanded placement of the current piece, starting from its own index, with every placement of the upcoming piece.
+     */
+    private final class SecondPlyTask extends RecursiveAction {
+
+        private final int taskIndex;
+        private final Board board;
+
+        private int pieceKind;
+        private int pieceRowIndex;
+        private int upcomingPieceKind;
+        private int expandedCount;
+
+        private int bestCandidate;      // -1 if this task had no candidate to expand.
+        private double bestFitness;
+        private long leafCount;
+
+        private SecondPlyTask(int taskIndex, Board board) {
+            this.taskIndex = taskIndex;
+            this.board = board;
+        }
+
+        private void prepare(int pieceKind, int pieceRowIndex, int upcomingPieceKind, int expandedCount) {
+            this.pieceKind = pieceKind;
+            this.pieceRowIndex = pieceRowIndex;
+            this.upcomingPieceKind = upcomingPieceKind;
+            this.expandedCount = expandedCount;
+            this.bestCandidate = -1;
+            this.bestFitness = Double.NEGATIVE_INFINITY;
+            this.leafCount = 0;
+        }
+
+        @Override
+        protected void compute() {
+            board.copyFrom(rootBoard);
+
+            for (int candidate = taskIndex; candidate < expandedCount; candidate += secondPlyTasks.length) {
+                int orientation = candidateOrientations[candidate];
+                int columnIndex = candidateColumnIndices[candidate];
+
+                // The candidates were found on the same board, so they fit.
+                board.place(pieceKind, orientation, pieceRowIndex, columnIndex);
+                double fitness = getBestUpcomingPieceFitness();
+
+                board.undo();
+
+                if (fitness > bestFitness) {
+                    bestFitness = fitness;
+                    bestCandidate = candidate;
+                }
+            }
+        }
+
+        private double getBestUpcomingPieceFitness() {
+            double bestUpcomingFitness = Double.NEGATIVE_INFINITY;
+            int uniqueRotationCount = ShapeRotations.getUniqueOrientationCount(upcomingPieceKind);
+
+            for (int rotationIter = 0; rotationIter < uniqueRotationCount; rotationIter++) {
+                int orientation = (Orientation.UP.getValue() + rotationIter) % ShapeRotations.ORIENTATION_COUNT;
+                int possibleSlotsToOccupyOnRow = board.getColumnCount() - ShapeRotations.getWidth(upcomingPieceKind, orientation) + 1;
+                int emptyCellsInPieceSchemaOffset = ShapeRotations.getLeftOffset(upcomingPieceKind, orientation);
+
+                for (int positionX = 0; positionX < possibleSlotsToOccupyOnRow; positionX++) {
+                    int truePositionX = positionX - emptyCellsInPieceSchemaOffset;
+
+                    // The upcoming piece spawns at the top row.
+                    if (board.place(upcomingPieceKind, orientation, 0, truePositionX) < 0) {
+                        continue;
+                    }
+
+                    bestUpcomingFitness = Math.max(bestUpcomingFitness, getFitness(board));
+                    board.undo();
+                    leafCount++;
+                }
+            }
+
+            return bestUpcomingFitness;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+    // Utils:
+    ////////////////////////////////////////////////////////////////////////////////
+
+    private static void recordDecision(long nodeCount, long elapsedNanos) {
+        DECISION_COUNT.increment();
+        NODE_COUNT.add(nodeCount);
+        SEARCH_NANOS.add(elapsedNanos);
+
+        if (elapsedNanos > Constants.AI_LOOKAHEAD_DECISION_BUDGET_NANOS) {
+            OVER_BUDGET_DECISION_COUNT.increment();
+        }
+    }
+
+    /**
+     * @return the number of searches made by all the lookahead agents (decisions found in the transposition table excluded).
+     */
+    public static long getDecisionCount() {
+        return DECISION_COUNT.sum();
+    }
+
+    /**
+     * @return the number of boards evaluated by all the searches, placements of both plies included.
+     */
+    public static long getNodeCount() {
+        return NODE_COUNT.sum();
+    }
+
+    /**
+     * @return the number of searches which took longer than {@link Constants#AI_LOOKAHEAD_DECISION_BUDGET_NANOS}.
+     */
+    public static long getOverBudgetDecisionCount() {
+        return OVER_BUDGET_DECISION_COUNT.sum();
+    }
+
+    /**
+     * @return the number of boards evaluated per second of search (wall clock time, so a search shared out over a pool counts once).
+     */
+    public static double getNodesPerSecond() {
+        long searchNanos = SEARCH_NANOS.sum();
+
+        return searchNanos > 0 ? NODE_COUNT.sum() * 1e9 / searchNanos : 0.0;
+    }
+
+    /**
+     * @return the mean time taken by a search, in nanoseconds.
+     */
+    public static double getMeanDecisionNanos() {
+        long decisionCount = DECISION_COUNT.sum();
+
+        return decisionCount > 0 ? (double) SEARCH_NANOS.sum() / decisionCount : 0.0;
+    }
+}
@@ -30,7 +30,7 @@ public class RandomMoveAgent extends Agent {
         List<Integer> integers = new ArrayList<>(endExclusive - startInclusive);
 
         for (int k = startInclusive; k < endExclusive; k++) {
-            integers.add(RANDOM.nextInt(endExclusive) + startInclusive);
+            integers.add(random.nextInt(endExclusive) + startInclusive);
         }
 
         return integers;
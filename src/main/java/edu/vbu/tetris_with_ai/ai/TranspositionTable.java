@@ -0,0 +1,149 @@
+package edu.vbu.tetris_with_ai.ai;
+
+import edu.vbu.tetris_with_ai.core.Board;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <pre>
+ * Fixed-size cache of search results (an evaluation and the best placement found), keyed by {@link Board#getZobristKey(int, int)}
+ * mixed with whatever else the result depends on (e.g. the weights of the agent).
+ *
+ * Meant to be shared by every agent and thread, without any locking: each entry is a pair of longs, the key being stored XOR-ed with the data,
+ * so an entry torn by two concurrent writes simply fails the key check of the next probe (and counts as a miss).
+ * When two states compete for the same slot, the result of the deeper search wins, unless the stored one belongs to an older age (see {@link #incrementAge()}).
+ *
+ * Entries are returned packed into a long (no allocation), to be read with the static getters.
+ * </pre>
+ */
+public final class TranspositionTable {
+
+    public static final long NO_ENTRY = 0L;
+
+    // Layout of the packed data:
+    private static final long VALID_FLAG = 1L << 63;
+    private static final int ORIENTATION_SHIFT = 32;
+    private static final int COLUMN_INDEX_SHIFT = 40;
+    private static final int DEPTH_SHIFT = 48;
+    private static final int AGE_SHIFT = 56;
+    private static final long BYTE_MASK = 0xFF;
+    private static final long AGE_MASK = 0x7F;     // the age wraps around, keeping the highest bit for the valid flag.
+
+    private final AtomicLongArray slots;    // 2 per entry: key ^ data, then data.
+    private final int indexMask;
+    private volatile int age;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * @param capacity number of entries, has to be a power of two.
+     */
+    public TranspositionTable(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity of a transposition table must be a power of two, got " + capacity);
+        }
+
+        this.slots = new AtomicLongArray(capacity * 2);
+        this.indexMask = capacity - 1;
+    }
+
+    /**
+     * @return the packed entry stored for the given key, or {@link #NO_ENTRY}.
+     */
+    public long probe(long key) {
+        int slotIndex = getSlotIndex(key);
+        long data = slots.get(slotIndex + 1);
+
+        if (data != NO_ENTRY && (slots.get(slotIndex) ^ data) == key) {
+            hitCount.increment();
+
+            return data;
+        }
+
+        missCount.increment();
+
+        return NO_ENTRY;
+    }
+
+    /**
+     * @param orientation the orientation value of the best placement found.
+     * @param columnIndex the column of the best placement found (in the [-128, 127] range).
+     * @param depth       how many pieces deep the search went (in the [0, 255] range).
+     */
+    public void store(long key, float evaluation, int orientation, int columnIndex, int depth) {
+        int slotIndex = getSlotIndex(key);
+        long storedData = slots.get(slotIndex + 1);
+        int currentAge = age & (int) AGE_MASK;
+
+        boolean isSlotTakenByAnotherState = storedData != NO_ENTRY && (slots.get(slotIndex) ^ storedData) != key;
+
+        if (isSlotTakenByAnotherState && getAge(storedData) == currentAge && getDepth(storedData) > depth) {
+            return;
+        }
+
+        long data = VALID_FLAG
+                | (long) currentAge << AGE_SHIFT
+                | (depth & BYTE_MASK) << DEPTH_SHIFT
+                | (columnIndex & BYTE_MASK) << COLUMN_INDEX_SHIFT
+                | (orientation & BYTE_MASK) << ORIENTATION_SHIFT
+                | Float.floatToRawIntBits(evaluation) & 0xFFFFFFFFL;
+
+        slots.set(slotIndex, key ^ data);
+        slots.set(slotIndex + 1, data);
+    }
+
+    /**
+     * Makes the entries stored so far the first to be replaced (e.g. when a new generation of agents starts), without losing them right away.
+     */
+    public void incrementAge() {
+        age++;
+    }
+
+    public void clear() {
+        for (int k = 0; k < slots.length(); k++) {
+            slots.set(k, 0L);
+        }
+
+        hitCount.reset();
+        missCount.reset();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public int getCapacity() {
+        return indexMask + 1;
+    }
+
+    public static float getEvaluation(long entry) {
+        return Float.intBitsToFloat((int) entry);
+    }
+
+    public static int getOrientation(long entry) {
+        return (int) (entry >>> ORIENTATION_SHIFT & BYTE_MASK);
+    }
+
+    public static int getColumnIndex(long entry) {
+        return (byte) (entry >>> COLUMN_INDEX_SHIFT);
+    }
+
+    public static int getDepth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT & BYTE_MASK);
+    }
+
+    private static int getAge(long entry) {
+        return (int) (entry >>> AGE_SHIFT & AGE_MASK);
+    }
+
+    private int getSlotIndex(long key) {
+        // Zobrist keys are uniformly distributed, so their lowest bits make a good index.
+        return ((int) key & indexMask) * 2;
+    }
+}
@@ -0,0 +1,115 @@
+package edu.vbu.tetris_with_ai.ai.features;
+
+import edu.vbu.tetris_with_ai.core.Board;
+
+/**
+ * <pre>
+ * Features of the board. The first ones are tracked by the board itself, as the candidate placement gets written into it (so extracting them costs nothing),
+ * the other ones come from Dellacherie's player and its El-Tetris / BCTS tunings, and are computed from the row bitmasks of the board.
+ * The lines, landing height and eroded piece cells describe the placement itself: the board records them before clearing the completed rows.
+ * </pre>
+ */
+public enum BoardFeature implements FeatureExtractor {
+
+    AGGREGATE_HEIGHT("height") {
+        @Override
+        public double extract(Board board) {
+            return -board.getAggregateHeight();
+        }
+    },
+
+    HOLES("holes") {
+        @Override
+        public double extract(Board board) {
+            return -board.getHoleCount();
+        }
+    },
+
+    BUMPINESS("bumpiness") {
+        @Override
+        public double extract(Board board) {
+            return -board.getBumpiness();
+        }
+    },
+
+    COMPLETE_ROWS("lines") {
+        @Override
+        public double extract(Board board) {
+            return board.getLastCompletedRowCount();
+        }
+    },
+
+    LANDING_HEIGHT("landing height") {
+        @Override
+        public double extract(Board board) {
+            return -board.getLastLandingHeight();
+        }
+    },
+
+    ERODED_PIECE_CELLS("eroded piece cells") {
+        @Override
+        public double extract(Board board) {
+            return board.getLastErodedPieceCellCount();
+        }
+    },
+
+    ROW_TRANSITIONS("row transitions") {
+        @Override
+        public double extract(Board board) {
+            return -board.getRowTransitionCount();
+        }
+    },
+
+    COLUMN_TRANSITIONS("column transitions") {
+        @Override
+        public double extract(Board board) {
+            return -board.getColumnTransitionCount();
+        }
+    },
+
+    WELLS("wells") {
+        @Override
+        public double extract(Board board) {
+            return -board.getWellSum();
+        }
+    },
+
+    HOLE_DEPTH("hole depth") {
+        @Override
+        public double extract(Board board) {
+            return -board.getHoleDepthSum();
+        }
+    };
+
+    private final String name;
+
+    BoardFeature(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the features weighted by the agents unless told otherwise.
+     */
+    public static FeatureExtractor[] getDefaultFeatures() {
+        return new FeatureExtractor[] { AGGREGATE_HEIGHT, HOLES, BUMPINESS, COMPLETE_ROWS };
+    }
+
+    /**
+     * @return the six features of Dellacherie's player.
+     */
+    public static FeatureExtractor[] getDellacherieFeatures() {
+        return new FeatureExtractor[] { LANDING_HEIGHT, ERODED_PIECE_CELLS, ROW_TRANSITIONS, COLUMN_TRANSITIONS, HOLES, WELLS };
+    }
+
+    /**
+     * @return every feature.
+     */
+    public static FeatureExtractor[] getAllFeatures() {
+        return values();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
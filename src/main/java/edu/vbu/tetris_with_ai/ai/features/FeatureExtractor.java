@@ -0,0 +1,24 @@
+package edu.vbu.tetris_with_ai.ai.features;
+
+import edu.vbu.tetris_with_ai.core.Board;
+
+/**
+ * <pre>
+ * One feature of a board, weighted by the genetic agents to evaluate their candidate placements
+ * (the fitness of a placement being the weighted sum of the features of the resulting board).
+ *
+ * Features are oriented so that a positive weight favours the boards a human would prefer (e.g. the hole count is negated),
+ * and they are called for every candidate placement, so they must not allocate.
+ * </pre>
+ */
+public interface FeatureExtractor {
+
+    /**
+     * @param board the board right after a candidate placement (see {@link Board#place(int, int, int, int)}), its complete rows being already cleared:
+     *              the height, holes, bumpiness, etc. are the ones left after the clear, while the features of the placement itself
+     *              (landing height, completed rows, eroded cells) are the ones the board recorded when the piece was locked.
+     */
+    double extract(Board board);
+
+    String getName();
+}
@@ -0,0 +1,291 @@
+package edu.vbu.tetris_with_ai.ai.optimizers;
+
+import edu.vbu.tetris_with_ai.utils.Constants;
+
+import java.util.Random;
+
+/**
+ * <pre>
+ * Covariance matrix adaptation evolution strategy, (mu/mu_w, lambda) variant with the default parameters of Hansen's tutorial
+ * ("The CMA Evolution Strategy: A Tutorial", 2016), lambda being the batch size.
+ *
+ * Genomes are sampled from a multivariate normal distribution, whose mean, covariance matrix and step size are updated from the best half of each batch.
+ * Told genomes which were not asked from the current distribution are taken as they are (their step is recomputed from the current mean).
+ * </pre>
+ */
+public class CmaEsOptimizer implements Optimizer {
+
+    private final int dimension;
+    private final int parentCount;
+    private final Random random;
+
+    // Strategy parameters.
+    private final double[] recombinationWeights;
+    private final double effectiveParentCount;
+    private final double stepSizeLearningRate;
+    private final double stepSizeDamping;
+    private final double covariancePathLearningRate;
+    private final double rankOneLearningRate;
+    private final double rankMuLearningRate;
+    private final double expectedNormalNorm;
+
+    // Distribution.
+    private final double[] mean;
+    private double stepSize;
+    private final double[][] covariance;
+    private final double[][] eigenVectors;        // columns of B.
+    private final double[] eigenRoots;            // diagonal of D (square roots of the eigenvalues of the covariance).
+    private final double[][] inverseRootCovariance;
+    private final double[] stepSizePath;
+    private final double[] covariancePath;
+
+    private final Population batch;
+    private int generation;
+
+    public CmaEsOptimizer(int dimension, int batchSize, long seed) {
+        if (batchSize < 4) {
+            throw new IllegalArgumentException("CMA-ES requires at least 4 genomes per batch, got " + batchSize);
+        }
+
+        this.dimension = dimension;
+        this.parentCount = batchSize / 2;
+        this.random = new Random(seed);
+
+        this.recombinationWeights = new double[parentCount];
+        double weightSum = 0.0;
+        double squaredWeightSum = 0.0;
+
+        for (int k = 0; k < parentCount; k++) {
+            recombinationWeights[k] = Math.log(parentCount + 0.5) - Math.log(k + 1);
+            weightSum += recombinationWeights[k];
+        }
+        for (int k = 0; k < parentCount; k++) {
+            recombinationWeights[k] /= weightSum;
+            squaredWeightSum += recombinationWeights[k] * recombinationWeights[k];
+        }
+
+        this.effectiveParentCount = 1.0 / squaredWeightSum;
+        this.stepSizeLearningRate = (effectiveParentCount + 2) / (dimension + effectiveParentCount + 5);
+        this.stepSizeDamping = 1 + 2 * Math.max(0, Math.sqrt((effectiveParentCount - 1) / (dimension + 1)) - 1) + stepSizeLearningRate;
+        this.covariancePathLearningRate = (4 + effectiveParentCount / dimension) / (dimension + 4 + 2 * effectiveParentCount / dimension);
+        this.rankOneLearningRate = 2 / ((dimension + 1.3) * (dimension + 1.3) + effectiveParentCount);
+        this.rankMuLearningRate = Math.min(1 - rankOneLearningRate
+                , 2 * (effectiveParentCount - 2 + 1 / effectiveParentCount) / ((dimension + 2) * (dimension + 2) + effectiveParentCount));
+        this.expectedNormalNorm = Math.sqrt(dimension) * (1 - 1.0 / (4 * dimension) + 1.0 / (21.0 * dimension * dimension));
+
+        this.mean = new double[dimension];
+        this.stepSize = Constants.AI_OPTIMIZER_INITIAL_DEVIATION;
+        this.covariance = new double[dimension][dimension];
+        this.eigenVectors = new double[dimension][dimension];
+        this.eigenRoots = new double[dimension];
+        this.inverseRootCovariance = new double[dimension][dimension];
+        this.stepSizePath = new double[dimension];
+        this.covariancePath = new double[dimension];
+        this.batch = new Population(dimension, batchSize);
+
+        for (int k = 0; k < dimension; k++) {
+            covariance[k][k] = 1.0;
+            eigenVectors[k][k] = 1.0;
+            eigenRoots[k] = 1.0;
+            inverseRootCovariance[k][k] = 1.0;
+        }
+    }
+
+    @Override
+    public double[] ask() {
+        double[] scaledSample = new double[dimension];      // D * z
+        double[] genome = new double[dimension];
+
+        for (int k = 0; k < dimension; k++) {
+            scaledSample[k] = eigenRoots[k] * random.nextGaussian();
+        }
+        for (int row = 0; row < dimension; row++) {
+            double step = 0.0;
+
+            for (int col = 0; col < dimension; col++) {
+                step += eigenVectors[row][col] * scaledSample[col];
+            }
+
+            genome[row] = mean[row] + stepSize * step;
+        }
+
+        return genome;
+    }
+
+    @Override
+    public void tell(double[] genome, double fitness) {
+        batch.insert(genome, fitness);
+
+        if (batch.isFull()) {
+            updateDistribution();
+            batch.clear();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "CMA-ES";
+    }
+
+    /**
+     * Updates the distribution from the parents, i.e. the first genomes of the (sorted) batch.
+     */
+    private void updateDistribution() {
+        generation++;
+
+        // Steps of the parents, from the old mean, and their weighted mean.
+        double[] genomes = batch.getGenomes();
+        double[][] steps = new double[parentCount][dimension];
+        double[] meanStep = new double[dimension];
+
+        for (int p = 0; p < parentCount; p++) {
+            int offset = batch.getOffset(p);
+
+            for (int k = 0; k < dimension; k++) {
+                steps[p][k] = (genomes[offset + k] - mean[k]) / stepSize;
+                meanStep[k] += recombinationWeights[p] * steps[p][k];
+            }
+        }
+        for (int k = 0; k < dimension; k++) {
+            mean[k] += stepSize * meanStep[k];
+        }
+
+        // Evolution paths.
+        double stepSizePathFactor = Math.sqrt(stepSizeLearningRate * (2 - stepSizeLearningRate) * effectiveParentCount);
+        double stepSizePathNorm = 0.0;
+
+        for (int row = 0; row < dimension; row++) {
+            double whitenedStep = 0.0;
+
+            for (int col = 0; col < dimension; col++) {
+                whitenedStep += inverseRootCovariance[row][col] * meanStep[col];
+            }
+
+            stepSizePath[row] = (1 - stepSizeLearningRate) * stepSizePath[row] + stepSizePathFactor * whitenedStep;
+            stepSizePathNorm += stepSizePath[row] * stepSizePath[row];
+        }
+
+        stepSizePathNorm = Math.sqrt(stepSizePathNorm);
+
+        double stepSizePathDecay = 1 - Math.pow(1 - stepSizeLearningRate, 2.0 * generation);
+        boolean isPathStalled = stepSizePathNorm / Math.sqrt(stepSizePathDecay) >= (1.4 + 2.0 / (dimension + 1)) * expectedNormalNorm;
+        double covariancePathFactor = isPathStalled ? 0.0 : Math.sqrt(covariancePathLearningRate * (2 - covariancePathLearningRate) * effectiveParentCount);
+
+        for (int k = 0; k < dimension; k++) {
+            covariancePath[k] = (1 - covariancePathLearningRate) * covariancePath[k] + covariancePathFactor * meanStep[k];
+        }
+
+        // Covariance matrix: rank-one update (from the path) and rank-mu update (from the parents).
+        double stalledPathCorrection = isPathStalled ? rankOneLearningRate * covariancePathLearningRate * (2 - covariancePathLearningRate) : 0.0;
+        double oldCovarianceFactor = 1 - rankOneLearningRate - rankMuLearningRate + stalledPathCorrection;
+
+        for (int row = 0; row < dimension; row++) {
+            for (int col = 0; col <= row; col++) {
+                double rankMuUpdate = 0.0;
+
+                for (int p = 0; p < parentCount; p++) {
+                    rankMuUpdate += recombinationWeights[p] * steps[p][row] * steps[p][col];
+                }
+
+                covariance[row][col] = oldCovarianceFactor * covariance[row][col]
+                        + rankOneLearningRate * covariancePath[row] * covariancePath[col]
+                        + rankMuLearningRate * rankMuUpdate;
+                covariance[col][row] = covariance[row][col];
+            }
+        }
+
+        // Step size.
+        stepSize *= Math.exp((stepSizeLearningRate / stepSizeDamping) * (stepSizePathNorm / expectedNormalNorm - 1));
+
+        decomposeCovariance();
+    }
+
+    /**
+     * Computes B and D (C = B * D^2 * B^T) and C^(-1/2), using the Jacobi eigenvalue algorithm (the matrix is tiny).
+     */
+    private void decomposeCovariance() {
+        double[][] diagonalised = new double[dimension][];
+
+        for (int row = 0; row < dimension; row++) {
+            diagonalised[row] = covariance[row].clone();
+
+            for (int col = 0; col < dimension; col++) {
+                eigenVectors[row][col] = row == col ? 1.0 : 0.0;
+            }
+        }
+
+        for (int sweep = 0; sweep < 50; sweep++) {
+            double offDiagonalSum = 0.0;
+
+            for (int row = 0; row < dimension; row++) {
+                for (int col = row + 1; col < dimension; col++) {
+                    offDiagonalSum += Math.abs(diagonalised[row][col]);
+                }
+            }
+
+            if (offDiagonalSum < 1e-15) {
+                break;
+            }
+
+            for (int p = 0; p < dimension; p++) {
+                for (int q = p + 1; q < dimension; q++) {
+                    if (diagonalised[p][q] != 0.0) {
+                        rotate(diagonalised, p, q);
+                    }
+                }
+            }
+        }
+
+        for (int k = 0; k < dimension; k++) {
+            eigenRoots[k] = Math.sqrt(Math.max(diagonalised[k][k], 1e-20));
+        }
+        for (int row = 0; row < dimension; row++) {
+            for (int col = 0; col < dimension; col++) {
+                double value = 0.0;
+
+                for (int k = 0; k < dimension; k++) {
+                    value += eigenVectors[row][k] * eigenVectors[col][k] / eigenRoots[k];
+                }
+
+                inverseRootCovariance[row][col] = value;
+            }
+        }
+    }
+
+    /**
+     * Zeroes the (p, q) element of the given symmetric matrix with a Jacobi rotation, which is accumulated into the eigenvectors.
+     */
+    private void rotate(double[][] matrix, int p, int q) {
+        double theta = (matrix[q][q] - matrix[p][p]) / (2 * matrix[p][q]);
+        double tangent = Math.signum(theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1));
+
+        if (theta == 0.0) {
+            tangent = 1.0;
+        }
+
+        double cosine = 1 / Math.sqrt(tangent * tangent + 1);
+        double sine = tangent * cosine;
+
+        for (int k = 0; k < dimension; k++) {
+            double kp = matrix[k][p];
+            double kq = matrix[k][q];
+
+            matrix[k][p] = cosine * kp - sine * kq;
+            matrix[k][q] = sine * kp + cosine * kq;
+        }
+        for (int k = 0; k < dimension; k++) {
+            double pk = matrix[p][k];
+            double qk = matrix[q][k];
+
+            matrix[p][k] = cosine * pk - sine * qk;
+            matrix[q][k] = sine * pk + cosine * qk;
+        }
+        for (int k = 0; k < dimension; k++) {
+            double kp = eigenVectors[k][p];
+            double kq = eigenVectors[k][q];
+
+            eigenVectors[k][p] = cosine * kp - sine * kq;
+            eigenVectors[k][q] = sine * kp + cosine * kq;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package edu.vbu.tetris_with_ai.ai.optimizers;
+
+import edu.vbu.tetris_with_ai.utils.Constants;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * <pre>
+ * Cross-entropy method, with the added noise of Szita and Lorincz ("Learning Tetris Using the Noisy Cross-Entropy Method", 2006).
+ *
+ * Genomes are sampled from independent normal distributions (one per gene). Once a batch has been told, every distribution is refitted
+ * to the best fraction of the batch (the elite), then widened by some noise, which decreases over the generations,
+ * so the search doesn't collapse on the first good genomes it finds.
+ * </pre>
+ */
+public class CrossEntropyOptimizer implements Optimizer {
+
+    private final int dimension;
+    private final int eliteCount;
+    private final Random random;
+
+    private final double[] mean;
+    private final double[] variance;
+    private final Population batch;
+    private int generation;
+
+    public CrossEntropyOptimizer(int dimension, int batchSize, long seed) {
+        if (batchSize < 2) {
+            throw new IllegalArgumentException("The cross-entropy method requires at least 2 genomes per batch, got " + batchSize);
+        }
+
+        this.dimension = dimension;
+        this.eliteCount = Math.max(2, (int) Math.round(batchSize * Constants.AI_CEM_ELITE_FRACTION));
+        this.random = new Random(seed);
+        this.mean = new double[dimension];
+        this.variance = new double[dimension];
+        this.batch = new Population(dimension, batchSize);
+
+        for (int k = 0; k < dimension; k++) {
+            variance[k] = Constants.AI_OPTIMIZER_INITIAL_DEVIATION * Constants.AI_OPTIMIZER_INITIAL_DEVIATION;
+        }
+    }
+
+    @Override
+    public double[] ask() {
+        double[] genome = new double[dimension];
+
+        for (int k = 0; k < dimension; k++) {
+            genome[k] = mean[k] + Math.sqrt(variance[k]) * random.nextGaussian();
+        }
+
+        return genome;
+    }
+
+    @Override
+    public void tell(double[] genome, double fitness) {
+        batch.insert(genome, fitness);
+
+        if (batch.isFull()) {
+            updateDistributions();
+            batch.clear();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "cross-entropy method";
+    }
+
+    /**
+     * Refits the distributions to the elite, i.e. the first genomes of the (sorted) batch.
+     */
+    private void updateDistributions() {
+        double noise = Math.max(0.0, Constants.AI_CEM_NOISE_VARIANCE * (1.0 - (double) generation / Constants.AI_CEM_NOISE_DECAY_GENERATIONS));
+
+        double[] genomes = batch.getGenomes();
+
+        Arrays.fill(mean, 0.0);
+        Arrays.fill(variance, 0.0);
+
+        for (int e = 0; e < eliteCount; e++) {
+            int offset = batch.getOffset(e);
+
+            for (int k = 0; k < dimension; k++) {
+                mean[k] += genomes[offset + k];
+            }
+        }
+        for (int k = 0; k < dimension; k++) {
+            mean[k] /= eliteCount;
+        }
+        for (int e = 0; e < eliteCount; e++) {
+            int offset = batch.getOffset(e);
+
+            for (int k = 0; k < dimension; k++) {
+                double deviation = genomes[offset + k] - mean[k];
+                variance[k] += deviation * deviation;
+            }
+        }
+        for (int k = 0; k < dimension; k++) {
+            variance[k] = variance[k] / eliteCount + noise;
+        }
+
+        generation++;
+    }
+}
@@ -0,0 +1,119 @@
+package edu.vbu.tetris_with_ai.ai.optimizers;
+
+import edu.vbu.tetris_with_ai.utils.Constants;
+
+import java.util.Random;
+
+/**
+ * <pre>
+ * Genetic algorithm: truncation selection (the better half of the population are the parents), arithmetic mean crossover of two random parents,
+ * then additive mutation of each gene, the genes being kept within [-1, 1].
+ *
+ * In generational mode, the population is replaced by each batch of told genomes, and the first genome asked from a new population is its best one (elitism).
+ * In steady state mode, every told genome joins the population right away, as long as it's among the best ones so far.
+ * </pre>
+ */
+public class GeneticOptimizer implements Optimizer {
+
+    private final int dimension;
+    private final boolean steadyState;
+    private final Random random;
+
+    private final Population population;
+    private final Population nextPopulation;       // genomes told since the last generation (generational mode only).
+    private boolean eliteAsked;
+
+    private final double[] mutationDeltas;
+
+    /**
+     * @param steadyState whether told genomes join the population one by one, instead of a whole generation at once.
+     */
+    public GeneticOptimizer(int dimension, int populationSize, boolean steadyState, long seed) {
+        if (populationSize < 2) {
+            throw new IllegalArgumentException("A genetic algorithm requires at least 2 genomes per population, got " + populationSize);
+        }
+
+        this.dimension = dimension;
+        this.steadyState = steadyState;
+        this.random = new Random(seed);
+        this.population = new Population(dimension, populationSize);
+        this.nextPopulation = new Population(dimension, populationSize);
+        this.mutationDeltas = new double[dimension];
+    }
+
+    @Override
+    public double[] ask() {
+        if (population.size() < 2) {
+            // Not enough parents yet.
+            double[] genome = new double[dimension];
+
+            for (int k = 0; k < dimension; k++) {
+                genome[k] = getRandomGene();
+            }
+
+            return genome;
+        }
+
+        if (!steadyState && !eliteAsked) {
+            eliteAsked = true;
+
+            return population.copyGenome(0);
+        }
+
+        // Parents are picked among the better half of the population.
+        int parentCandidateCount = Math.max(2, population.size() / 2);
+        int parentIndex1 = random.nextInt(parentCandidateCount);
+        int parentIndex2 = random.nextInt(parentCandidateCount - 1);
+
+        if (parentIndex2 >= parentIndex1) {
+            parentIndex2++;
+        }
+
+        double[] child = new double[dimension];
+
+        GenomeOperators.crossOver(population.getGenomes(), population.getOffset(parentIndex1), population.getOffset(parentIndex2), child);
+
+        // Mutate the genes of the child, randomly.
+        for (int k = 0; k < dimension; k++) {
+            mutationDeltas[k] = 0.0;
+
+            if (random.nextDouble() < Constants.AI_GENES_MUTATION_RATE) {
+                double factor = random.nextBoolean() ? 1 : -1;
+                mutationDeltas[k] = getRandomGene() / 2.0 * factor;
+            }
+        }
+
+        GenomeOperators.mutate(child, mutationDeltas);
+        GenomeOperators.clamp(child, -1.0, 1.0);
+
+        return child;
+    }
+
+    @Override
+    public void tell(double[] genome, double fitness) {
+        if (steadyState) {
+            population.insert(genome, fitness);
+        } else {
+            nextPopulation.insert(genome, fitness);
+
+            if (nextPopulation.isFull()) {
+                population.copyFrom(nextPopulation);
+                nextPopulation.clear();
+                eliteAsked = false;
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "genetic algorithm";
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+    // Utils:
+    ////////////////////////////////////////////////////////////////////////////////
+
+    private double getRandomGene() {
+        return random.nextDouble() * 2.0 - 1.0;     // map [0, 1] to [-1, 1]
+    }
+}
@@ -0,0 +1,35 @@
+package edu.vbu.tetris_with_ai.ai.optimizers;
+
+/**
+ * Element-wise operators over genomes: plain loops over arrays, without branches, which the JIT compiler can vectorise.
+ */
+public abstract class GenomeOperators {
+
+    private GenomeOperators() {
+        // Nothing
+    }
+
+    /**
+     * Arithmetic mean crossover of two genomes of a population (see {@link Population#getGenomes()}).
+     */
+    public static void crossOver(double[] genomes, int parentOffset1, int parentOffset2, double[] child) {
+        for (int k = 0; k < child.length; k++) {
+            child[k] = (genomes[parentOffset1 + k] + genomes[parentOffset2 + k]) * 0.5;
+        }
+    }
+
+    /**
+     * Additive mutation (genes which should not mutate have a delta of 0).
+     */
+    public static void mutate(double[] genome, double[] deltas) {
+        for (int k = 0; k < genome.length; k++) {
+            genome[k] += deltas[k];
+        }
+    }
+
+    public static void clamp(double[] genome, double min, double max) {
+        for (int k = 0; k < genome.length; k++) {
+            genome[k] = Math.min(Math.max(genome[k], min), max);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package edu.vbu.tetris_with_ai.ai.optimizers;
+
+/**
+ * <pre>
+ * Black-box search over genomes (arrays of weights), driven through an "ask / tell" loop:
+ * the caller asks for candidates to evaluate, then tells the fitness of each one (the higher, the better) in whatever order the evaluations finish.
+ *
+ * An optimizer updates itself once a whole batch (its population size) of fitnesses has been told, so several candidates may be asked
+ * before any of them gets evaluated. Genomes which were not asked (e.g. the initial, random agents) can be told as well.
+ *
+ * Implementations are not thread safe.
+ * </pre>
+ */
+public interface Optimizer {
+
+    /**
+     * @return a new genome to evaluate, which the caller may keep.
+     */
+    double[] ask();
+
+    /**
+     * @param genome  a genome which has been evaluated (it's never modified).
+     * @param fitness its fitness; only the order of the fitnesses matters, not their scale.
+     */
+    void tell(double[] genome, double fitness);
+
+    String getName();
+}
@@ -0,0 +1,94 @@
+package edu.vbu.tetris_with_ai.ai.optimizers;
+
+/**
+ * <pre>
+ * Genomes and their fitness, kept sorted from best to worst, up to a fixed capacity.
+ *
+ * All the genomes are stored back to back in a single array (genome <i>k</i> starts at <i>k * dimension</i>),
+ * so breeding or refitting a distribution walks contiguous memory, whatever the population size.
+ * </pre>
+ */
+public final class Population {
+
+    private final int dimension;
+    private final int capacity;
+    private final double[] genomes;
+    private final double[] fitnesses;
+    private int size;
+
+    public Population(int dimension, int capacity) {
+        this.dimension = dimension;
+        this.capacity = capacity;
+        this.genomes = new double[capacity * dimension];
+        this.fitnesses = new double[capacity];
+    }
+
+    /**
+     * Inserts a copy of the given genome after the ones which are at least as fit. When the population is full, its worst genome is dropped
+     * (which may be the given one).
+     */
+    public void insert(double[] genome, double fitness) {
+        int insertionIndex = 0;
+
+        while (insertionIndex < size && fitnesses[insertionIndex] >= fitness) {
+            insertionIndex++;
+        }
+
+        if (insertionIndex == capacity) {
+            return;
+        }
+
+        int shiftedCount = Math.min(size, capacity - 1) - insertionIndex;
+
+        System.arraycopy(genomes, insertionIndex * dimension, genomes, (insertionIndex + 1) * dimension, shiftedCount * dimension);
+        System.arraycopy(fitnesses, insertionIndex, fitnesses, insertionIndex + 1, shiftedCount);
+        System.arraycopy(genome, 0, genomes, insertionIndex * dimension, dimension);
+        fitnesses[insertionIndex] = fitness;
+
+        size = Math.min(size + 1, capacity);
+    }
+
+    public void copyFrom(Population other) {
+        System.arraycopy(other.genomes, 0, genomes, 0, other.size * dimension);
+        System.arraycopy(other.fitnesses, 0, fitnesses, 0, other.size);
+        size = other.size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * @return the genomes, best first (only the first {@link #size()} ones are set), to be read with {@link #getOffset(int)}.
+     */
+    public double[] getGenomes() {
+        return genomes;
+    }
+
+    public int getOffset(int index) {
+        return index * dimension;
+    }
+
+    public double[] copyGenome(int index) {
+        double[] genome = new double[dimension];
+        System.arraycopy(genomes, index * dimension, genome, 0, dimension);
+
+        return genome;
+    }
+
+    public double getFitness(int index) {
+        return fitnesses[index];
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+}
@@ -0,0 +1,1102 @@
+package edu.vbu.tetris_with_ai.core;
+
+import edu.vbu.tetris_with_ai.core.shapes.ShapeKind;
+import edu.vbu.tetris_with_ai.core.shapes.ShapeRotations;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+
+/**
+ * <pre>
+ * Headless model of the tetris grid content.
+ * Each row of locked cells is a single bitmask (bit <i>j</i> set means column <i>j</i> is occupied),
+ * while the kind of piece that filled a cell is kept in a flat byte array (only needed for colouring).
+ * The locked cells are mirrored in a column-major bitboard (bit <i>b</i> of column <i>j</i> set means the cell at height <i>b</i> + 1 is occupied),
+ * so the height of a column (distance from the floor to its topmost locked cell) is a leading zero count and its holes a population count:
+ * drops and column queries need no row-by-row search.
+ * So are the features used to evaluate a placement (aggregate height, holes, bumpiness, complete and near-complete rows):
+ * they are updated as cells get written or erased, touching only the affected rows and columns.
+ * Further features (transitions, wells, hole depth) are computed on demand, a whole row or column at a time, with bitwise operations over the bitboards.
+ * Row-local metrics (filled cells, transitions, well cells) are read from tables indexed by the row bitmask (see {@link RowTables}).
+ * A Zobrist key of the locked cells is maintained along with them (see {@link ZobristKeys}).
+ * Searches can apply placements with {@link #place(int, int, int)} and revert them with {@link #undo()}, both backed by a preallocated undo journal.
+ * The falling piece is kept as primitives as well (its kind and orientation value), every piece-dependent lookup going through {@link ShapeRotations}.
+ * Handles piece translation, rotation and collision detection.
+ * </pre>
+ */
+public final class Board {
+
+    private static final Logger LOG = LogManager.getLogger(Board.class);
+
+    public static final int UNDO_JOURNAL_CAPACITY = 64;
+    public static final int MAX_HEIGHT = Integer.SIZE - 1;   // a column must fit in an int, with a spare bit for the floor.
+
+    // Layout of one undo journal frame:
+    private static final int FRAME_KIND = 0;
+    private static final int FRAME_ORIENTATION = 1;
+    private static final int FRAME_ROW_INDEX = 2;
+    private static final int FRAME_COLUMN_INDEX = 3;
+    private static final int FRAME_CLEARED_ROWS = 4;     // bit r set means row r of the piece (counted from its top row) was cleared.
+    private static final int FRAME_OCCUPIED_CELL_COUNT = 5;
+    private static final int FRAME_AGGREGATE_HEIGHT = 6;
+    private static final int FRAME_BUMPINESS = 7;
+    private static final int FRAME_COMPLETE_ROW_COUNT = 8;
+    private static final int FRAME_NEAR_COMPLETE_ROW_COUNT = 9;
+    private static final int FRAME_LAST_COMPLETED_ROW_COUNT = 10;
+    private static final int FRAME_LAST_ERODED_PIECE_CELL_COUNT = 11;
+    private static final int FRAME_SIZE = 12;
+
+    private final int rowCount;
+    private final int columnCount;
+    private final int fullRowMask;
+    private final int fullColumnMask;
+
+    // Shared by all the boards of the same width (see RowTables):
+    private final byte[] filledCellCounts;
+    private final byte[] transitionCounts;
+    private final int[] wellMasks;
+
+    private final int[] rows;           // index 0 is the top row.
+    private final byte[] cellKinds;     // row-major, 0 means empty.
+    private final int[] columns;        // column-major copy of the rows, bit 0 being the bottom cell of the column.
+
+    // Features of the locked cells:
+    private int occupiedCellCount;
+    private int aggregateHeight;
+    private int bumpiness;              // sum of the height differences between neighbouring columns.
+    private int completeRowCount;       // rows get cleared right after the piece completing them is locked.
+    private int nearCompleteRowCount;   // rows with a single empty cell.
+
+    // Features of the last placement:
+    private double lastLandingHeight;
+    private int lastCompletedRowCount;
+    private int lastErodedPieceCellCount;
+
+    private final int[] counterPlanes;  // for wells: bit-sliced counters, one per column (bit b of the counter of column j being bit j of plane b).
+
+    private final long[] zobristCellKeys;
+    private long zobristKey;
+
+    private final int[] undoJournal;
+    private final long[] undoJournalZobristKeys;
+    private final double[] undoJournalLandingHeights;
+    private final byte[] undoJournalCellKinds;  // content of the cleared rows, MAX_SCHEMA_SIZE rows per frame.
+    private int undoJournalSize;
+
+    private byte fallingPieceKind;      // the Null kind means there is no falling piece.
+    private int fallingPieceOrientation;
+    private int fallingPieceRowIndex, fallingPieceColumnIndex;
+
+    public Board(int cellCountOnX, int cellCountOnY) {
+        if (cellCountOnX < 1 || cellCountOnX > RowTables.MAX_WIDTH) {
+            throw new IllegalArgumentException("A board row must have between 1 and " + RowTables.MAX_WIDTH + " cells, got " + cellCountOnX);
+        }
+        if (cellCountOnY < 1 || cellCountOnY > MAX_HEIGHT) {
+            throw new IllegalArgumentException("A board column must have between 1 and " + MAX_HEIGHT + " cells, got " + cellCountOnY);
+        }
+
+        RowTables rowTables = RowTables.forWidth(cellCountOnX);
+
+        this.rowCount = cellCountOnY;
+        this.columnCount = cellCountOnX;
+        this.fullRowMask = (1 << cellCountOnX) - 1;
+        this.fullColumnMask = (1 << cellCountOnY) - 1;
+        this.filledCellCounts = rowTables.filledCellCounts;
+        this.transitionCounts = rowTables.transitionCounts;
+        this.wellMasks = rowTables.wellMasks;
+
+        this.rows = new int[cellCountOnY];
+        this.cellKinds = new byte[cellCountOnY * cellCountOnX];
+        this.columns = new int[cellCountOnX];
+        this.counterPlanes = new int[Integer.SIZE - Integer.numberOfLeadingZeros(cellCountOnY)];
+
+        this.zobristCellKeys = ZobristKeys.newCellKeys(cellCountOnY, cellCountOnX);
+
+        this.undoJournal = new int[UNDO_JOURNAL_CAPACITY * FRAME_SIZE];
+        this.undoJournalZobristKeys = new long[UNDO_JOURNAL_CAPACITY];
+        this.undoJournalLandingHeights = new double[UNDO_JOURNAL_CAPACITY];
+        this.undoJournalCellKinds = new byte[UNDO_JOURNAL_CAPACITY * ShapeRotations.MAX_SCHEMA_SIZE * cellCountOnX];
+
+        resetFallingPiece(ShapeKind.NULL);
+    }
+
+    /**
+     * Spawns a piece of the given kind at the top of the board, locking the previous one in place.
+     *
+     * @param fallingPieceKind the kind of the new piece to insert into the board ({@link ShapeKind#NULL} to only lock the previous one).
+     * @throws IllegalStateException when the place is occupied by other piece(s).
+     */
+    public void setCurrentFallingPiece(ShapeKind fallingPieceKind) throws IllegalStateException {
+        LOG.trace("Updating current piece from {} to {}", this::getFallingPieceKind, () -> fallingPieceKind);
+
+        lockFallingPiece();
+        resetFallingPiece(fallingPieceKind);
+
+        if (isFallingPieceOverlapping()) {
+            throw new IllegalStateException("Cannot place piece " + fallingPieceKind.getName() + " at position [" + fallingPieceRowIndex + ", " + fallingPieceColumnIndex + "], the place is occupied by other piece(s)");
+        }
+    }
+
+    public boolean movePieceDownOneRow() {
+        if (hasFallingPiece() && !isPieceCollidingBottom()) {
+            LOG.trace("Moving current piece [{}] down one row", this::getFallingPieceKind);
+
+            fallingPieceRowIndex++;
+
+            return true;
+        }
+
+        return false;
+    }
+
+    public boolean movePieceLeftOneColumn() {
+        if (hasFallingPiece() && !isPieceTouchingLeftWall() && !isPieceTouchingOtherPieceLeft()) {
+            LOG.trace("Moving current piece [{}] left one column", this::getFallingPieceKind);
+
+            fallingPieceColumnIndex--;
+
+            return true;
+        }
+
+        return false;
+    }
+
+    public boolean movePieceRightOneColumn() {
+        if (hasFallingPiece() && !isPieceTouchingRightWall() && !isPieceTouchingOtherPieceRight()) {
+            LOG.trace("Moving current piece [{}] right one column", this::getFallingPieceKind);
+
+            fallingPieceColumnIndex++;
+
+            return true;
+        }
+
+        return false;
+    }
+
+    public void rotatePieceLeftOnce() {
+        rotatePieceOnceInternal(ShapeRotations.ORIENTATION_COUNT - 1);
+    }
+
+    public void rotatePieceRightOnce() {
+        rotatePieceOnceInternal(1);
+    }
+
+    public int instantDropPiece() {
+        if (!hasFallingPiece()) {
+            return 0;
+        }
+
+        int landingRowIndex = getLandingRowIndex(fallingPieceKind, fallingPieceOrientation, fallingPieceRowIndex, fallingPieceColumnIndex);
+        int moveCount = landingRowIndex - fallingPieceRowIndex;
+
+        LOG.trace("Dropping current piece [{}] {} rows", this::getFallingPieceKind, () -> moveCount);
+
+        fallingPieceRowIndex = landingRowIndex;
+
+        return moveCount;
+    }
+
+    public boolean isPieceCollidingBottom() {
+        assertCurrentPieceNotNull();
+
+        return getLandingRowIndex(fallingPieceKind, fallingPieceOrientation, fallingPieceRowIndex, fallingPieceColumnIndex) == fallingPieceRowIndex;
+    }
+
+    /**
+     * <pre>
+     * Drops the given piece from the top of the board, locks it and clears the lines it completes, as if it was played.
+     * The falling piece, if any, is left untouched. The placement can be reverted with {@link #undo()}.
+     * Both calls need no heap allocation and only touch the rows of the piece (plus the ones above, when lines get cleared).
+     * </pre>
+     *
+     * @param kind        the piece's kind (see {@link ShapeKind#getId()}).
+     * @param orientation the piece's orientation value (see {@link Orientation#getValue()}).
+     * @param columnIndex the column of the piece's schema, like {@link #getFallingPieceColumnIndex()}.
+     * @return the number of cleared lines, or -1 if the piece does not fit at the top of the board (the board is left unchanged).
+     * @throws IllegalStateException when the undo journal is full.
+     */
+    public int place(int kind, int orientation, int columnIndex) throws IllegalStateException {
+        return place(kind, orientation, -ShapeRotations.getTopOffset(kind, orientation), columnIndex);
+    }
+
+    /**
+     * Same as {@link #place(int, int, int)}, dropping the piece from the given row instead of the top of the board.
+     *
+     * @param rowIndex the row of the piece's schema, like {@link #getFallingPieceRowIndex()}.
+     * @return the number of cleared lines, or -1 if the piece overlaps the locked cells at the given position (the board is left unchanged).
+     * @throws IllegalStateException when the undo journal is full.
+     */
+    public int place(int kind, int orientation, int rowIndex, int columnIndex) throws IllegalStateException {
+        if (undoJournalSize == UNDO_JOURNAL_CAPACITY) {
+            throw new IllegalStateException("Cannot place more than " + UNDO_JOURNAL_CAPACITY + " pieces without undoing any");
+        }
+
+        if (isPieceOverlapping(kind, orientation, rowIndex, columnIndex)) {
+            return -1;
+        }
+
+        int topOffset = ShapeRotations.getTopOffset(kind, orientation);
+
+        rowIndex = getLandingRowIndex(kind, orientation, rowIndex, columnIndex);
+        int frame = undoJournalSize * FRAME_SIZE;
+
+        undoJournal[frame + FRAME_KIND] = kind;
+        undoJournal[frame + FRAME_ORIENTATION] = orientation;
+        undoJournal[frame + FRAME_ROW_INDEX] = rowIndex;
+        undoJournal[frame + FRAME_COLUMN_INDEX] = columnIndex;
+        undoJournal[frame + FRAME_OCCUPIED_CELL_COUNT] = occupiedCellCount;
+        undoJournal[frame + FRAME_AGGREGATE_HEIGHT] = aggregateHeight;
+        undoJournal[frame + FRAME_BUMPINESS] = bumpiness;
+        undoJournal[frame + FRAME_COMPLETE_ROW_COUNT] = completeRowCount;
+        undoJournal[frame + FRAME_NEAR_COMPLETE_ROW_COUNT] = nearCompleteRowCount;
+        undoJournal[frame + FRAME_LAST_COMPLETED_ROW_COUNT] = lastCompletedRowCount;
+        undoJournal[frame + FRAME_LAST_ERODED_PIECE_CELL_COUNT] = lastErodedPieceCellCount;
+        undoJournalZobristKeys[undoJournalSize] = zobristKey;
+        undoJournalLandingHeights[undoJournalSize] = lastLandingHeight;
+
+        lockPiece(kind, orientation, rowIndex, columnIndex);
+        recordPlacement(kind, orientation, rowIndex, columnIndex + ShapeRotations.getLeftOffset(kind, orientation));
+
+        // Remember the content of the completed rows before clearing them.
+        int topRowIndex = rowIndex + topOffset;
+        int bottomRowIndex = topRowIndex + ShapeRotations.getHeight(kind, orientation) - 1;
+        int clearedRows = 0;
+
+        for (int i = topRowIndex; i <= bottomRowIndex; i++) {
+            if (rows[i] == fullRowMask) {
+                clearedRows |= 1 << (i - topRowIndex);
+                System.arraycopy(cellKinds, i * columnCount, undoJournalCellKinds, (undoJournalSize * ShapeRotations.MAX_SCHEMA_SIZE + i - topRowIndex) * columnCount, columnCount);
+            }
+        }
+
+        undoJournal[frame + FRAME_CLEARED_ROWS] = clearedRows;
+        undoJournalSize++;
+
+        return clearedRows == 0 ? 0 : clearCompleteRows(topRowIndex, bottomRowIndex);
+    }
+
+    /**
+     * Reverts the last {@link #place(int, int, int)} call which has not been reverted yet, the features of the previous placement included.
+     * Locking the falling piece empties the undo journal, since the placements recorded before can no longer be reverted on their own.
+     *
+     * @throws IllegalStateException when there is no placement to revert.
+     */
+    public void undo() throws IllegalStateException {
+        if (undoJournalSize == 0) {
+            throw new IllegalStateException("There is no placement to undo");
+        }
+
+        undoJournalSize--;
+
+        int frame = undoJournalSize * FRAME_SIZE;
+        int kind = undoJournal[frame + FRAME_KIND];
+        int orientation = undoJournal[frame + FRAME_ORIENTATION];
+        int rowIndex = undoJournal[frame + FRAME_ROW_INDEX];
+        int columnIndex = undoJournal[frame + FRAME_COLUMN_INDEX];
+        int clearedRows = undoJournal[frame + FRAME_CLEARED_ROWS];
+        int clearedRowCount = Integer.bitCount(clearedRows);
+
+        int topOffset = ShapeRotations.getTopOffset(kind, orientation);
+        int topRowIndex = rowIndex + topOffset;
+        int bottomRowIndex = topRowIndex + ShapeRotations.getHeight(kind, orientation) - 1;
+        int shift = columnIndex + ShapeRotations.getLeftOffset(kind, orientation);
+
+        if (clearedRowCount > 0) {
+            // Move the rows above the piece back up, then spread the piece's rows again around the cleared ones.
+            System.arraycopy(rows, clearedRowCount, rows, 0, topRowIndex);
+            System.arraycopy(cellKinds, clearedRowCount * columnCount, cellKinds, 0, topRowIndex * columnCount);
+
+            int sourceRowIndex = topRowIndex + clearedRowCount;
+
+            for (int i = topRowIndex; i <= bottomRowIndex; i++) {
+                if ((clearedRows >>> (i - topRowIndex) & 1) != 0) {
+                    rows[i] = fullRowMask;
+                    System.arraycopy(undoJournalCellKinds, (undoJournalSize * ShapeRotations.MAX_SCHEMA_SIZE + i - topRowIndex) * columnCount, cellKinds, i * columnCount, columnCount);
+                } else {
+                    rows[i] = rows[sourceRowIndex];
+                    System.arraycopy(cellKinds, sourceRowIndex * columnCount, cellKinds, i * columnCount, columnCount);
+                    sourceRowIndex++;
+                }
+            }
+        }
+
+        // Erase the piece itself.
+        for (int r = topOffset; r < topOffset + ShapeRotations.getHeight(kind, orientation); r++) {
+            int pieceRowMask = ShapeRotations.getRowMask(kind, orientation, r) << shift;
+            int columnCell = getColumnCell(rowIndex + r);
+
+            rows[rowIndex + r] &= ~pieceRowMask;
+
+            for (int cells = pieceRowMask; cells != 0; cells &= cells - 1) {
+                columns[Integer.numberOfTrailingZeros(cells)] &= ~columnCell;
+            }
+        }
+
+        int packedCells = ShapeRotations.getPackedCells(kind, orientation);
+
+        for (int k = 0; k < ShapeRotations.getCellCount(kind, orientation); k++) {
+            cellKinds[(rowIndex + ShapeRotations.getCellRowOffset(packedCells, k)) * columnCount + columnIndex + ShapeRotations.getCellColumnOffset(packedCells, k)] = 0;
+        }
+
+        if (clearedRowCount > 0) {
+            // The columns were squeezed by the line clear: rebuild them from the restored rows.
+            recomputeColumns();
+        }
+
+        occupiedCellCount = undoJournal[frame + FRAME_OCCUPIED_CELL_COUNT];
+        aggregateHeight = undoJournal[frame + FRAME_AGGREGATE_HEIGHT];
+        bumpiness = undoJournal[frame + FRAME_BUMPINESS];
+        completeRowCount = undoJournal[frame + FRAME_COMPLETE_ROW_COUNT];
+        nearCompleteRowCount = undoJournal[frame + FRAME_NEAR_COMPLETE_ROW_COUNT];
+        lastCompletedRowCount = undoJournal[frame + FRAME_LAST_COMPLETED_ROW_COUNT];
+        lastErodedPieceCellCount = undoJournal[frame + FRAME_LAST_ERODED_PIECE_CELL_COUNT];
+        zobristKey = undoJournalZobristKeys[undoJournalSize];
+        lastLandingHeight = undoJournalLandingHeights[undoJournalSize];
+    }
+
+    /**
+     * @return the number of {@link #place(int, int, int)} calls which can still be reverted.
+     */
+    public int getUndoDepth() {
+        return undoJournalSize;
+    }
+
+    /**
+     * Counts the complete rows, the falling piece included. Only the rows spanned by the falling piece are checked, the other ones are tracked as cells get written.
+     */
+    public int getCompleteRowCount() {
+        int count = completeRowCount;
+
+        if (hasFallingPiece()) {
+            for (int i = getFallingPieceTopRowIndex(); i <= getFallingPieceBottomRowIndex(); i++) {
+                if (rows[i] != fullRowMask && (rows[i] | getFallingPieceRowMask(i)) == fullRowMask) {
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * If the player has filled any number of horizontal lines, they will be cleared.
+     *
+     * @return the number of cleared rows.
+     */
+    public int tryClearCompletedHorizLines() {
+        if (getCompleteRowCount() == 0) {
+            return 0;
+        }
+
+        // Placements clear their rows right away, so only the rows of the falling piece can be complete.
+        int topRowIndex = getFallingPieceTopRowIndex();
+        int bottomRowIndex = getFallingPieceBottomRowIndex();
+
+        // Force the current piece to get locked with the other still pieces, so it's guaranteed that it can also be erased if sitting on a completed line.
+        setCurrentFallingPiece(ShapeKind.NULL);
+
+        return clearCompleteRows(topRowIndex, bottomRowIndex);
+    }
+
+    /**
+     * Overwrites the locked cells of this board with the ones of the given board (of the same size), leaving out its falling piece.
+     */
+    public void copyFrom(Board original) {
+        System.arraycopy(original.rows, 0, rows, 0, rowCount);
+        System.arraycopy(original.cellKinds, 0, cellKinds, 0, cellKinds.length);
+        System.arraycopy(original.columns, 0, columns, 0, columnCount);
+        occupiedCellCount = original.occupiedCellCount;
+        aggregateHeight = original.aggregateHeight;
+        bumpiness = original.bumpiness;
+        completeRowCount = original.completeRowCount;
+        nearCompleteRowCount = original.nearCompleteRowCount;
+        zobristKey = original.zobristKey;
+        lastLandingHeight = original.lastLandingHeight;
+        lastCompletedRowCount = original.lastCompletedRowCount;
+        lastErodedPieceCellCount = original.lastErodedPieceCellCount;
+        undoJournalSize = 0;
+
+        resetFallingPiece(ShapeKind.NULL);
+    }
+
+    public void reset() {
+        Arrays.fill(rows, 0);
+        Arrays.fill(cellKinds, (byte) 0);
+        Arrays.fill(columns, 0);
+        occupiedCellCount = 0;
+        aggregateHeight = 0;
+        bumpiness = 0;
+        completeRowCount = 0;
+        nearCompleteRowCount = 0;
+        zobristKey = 0L;
+        lastLandingHeight = 0.0;
+        lastCompletedRowCount = 0;
+        lastErodedPieceCellCount = 0;
+        undoJournalSize = 0;
+
+        resetFallingPiece(ShapeKind.NULL);
+    }
+
+    public boolean isCellOccupied(int row, int column) {
+        return (rows[row] >>> column & 1) != 0;
+    }
+
+    /**
+     * @return the kind of piece which was locked in the given cell (see {@link ShapeKind#getId()}), 0 if empty.
+     */
+    public byte getCellKind(int row, int column) {
+        return cellKinds[row * columnCount + column];
+    }
+
+    /**
+     * @return the distance between the floor and the topmost locked cell of the column (holes underneath included), 0 if the column is empty.
+     */
+    public int getColumnHeight(int column) {
+        return Integer.SIZE - Integer.numberOfLeadingZeros(columns[column]);
+    }
+
+    /**
+     * @return the number of empty cells of the column which have a locked cell somewhere above them.
+     */
+    public int getColumnHoleCount(int column) {
+        return getColumnHeight(column) - Integer.bitCount(columns[column]);
+    }
+
+    public int getAggregateHeight() {
+        return aggregateHeight;
+    }
+
+    /**
+     * @return the number of empty cells which have a locked cell somewhere above them, in the same column.
+     */
+    public int getHoleCount() {
+        // Every column is filled up to its height, except for its holes.
+        return aggregateHeight - occupiedCellCount;
+    }
+
+    public int getBumpiness() {
+        return bumpiness;
+    }
+
+    /**
+     * @return the number of rows of locked cells which miss a single cell to be complete.
+     */
+    public int getNearCompleteRowCount() {
+        return nearCompleteRowCount;
+    }
+
+    /**
+     * @return the number of times a filled cell and an empty one are horizontal neighbours (walls count as filled), over the non-empty rows.
+     */
+    public int getRowTransitionCount() {
+        int count = 0;
+
+        for (int i = 0; i < rowCount; i++) {
+            count += transitionCounts[rows[i]];
+        }
+
+        return count;
+    }
+
+    /**
+     * @return the number of times a filled cell and an empty one are vertical neighbours (the floor counts as filled).
+     */
+    public int getColumnTransitionCount() {
+        int count = 0;
+
+        for (int j = 0; j < columnCount; j++) {
+            // Compare every cell with the one below it, the floor being an extra filled cell under bit 0.
+            count += Integer.bitCount((columns[j] ^ (columns[j] << 1 | 1)) & fullColumnMask);
+        }
+
+        return count;
+    }
+
+    /**
+     * <pre>
+     * Sums the depth of every well cell, counted from the top of its well (so a well of depth d weighs 1 + 2 + ... + d).
+     * A well cell is an empty cell with nothing above it, whose left and right neighbours are filled (walls count as filled).
+     * The depth of every column is kept in bit-sliced counters, so each row is handled with a few bitwise operations.
+     * </pre>
+     */
+    public int getWellSum() {
+        Arrays.fill(counterPlanes, 0);
+
+        int coveredColumns = 0;
+        int sum = 0;
+
+        for (int i = 0; i < rowCount; i++) {
+            int row = rows[i];
+            int wells = wellMasks[row] & ~coveredColumns;
+
+            // Columns without a well cell go back to 0, the other ones are incremented.
+            for (int b = 0; b < counterPlanes.length; b++) {
+                counterPlanes[b] &= wells;
+            }
+
+            incrementCounters(wells);
+
+            for (int b = 0; b < counterPlanes.length; b++) {
+                sum += Integer.bitCount(counterPlanes[b]) << b;
+            }
+
+            coveredColumns |= row;
+        }
+
+        return sum;
+    }
+
+    /**
+     * @return the sum, over every hole (see {@link #getHoleCount()}), of the number of filled cells above it in its column.
+     */
+    public int getHoleDepthSum() {
+        int sum = 0;
+
+        for (int j = 0; j < columnCount; j++) {
+            int column = columns[j];
+
+            for (int holes = ~column & ((1 << getColumnHeight(j)) - 1); holes != 0; holes &= holes - 1) {
+                sum += Integer.bitCount(column >>> Integer.numberOfTrailingZeros(holes));
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * @return the height of the middle of the last placed piece (see {@link #place(int, int, int)}),
+     * measured in cells from the floor before its completed rows were cleared.
+     */
+    public double getLastLandingHeight() {
+        return lastLandingHeight;
+    }
+
+    /**
+     * @return the number of rows completed, then cleared, by the last placed piece.
+     */
+    public int getLastCompletedRowCount() {
+        return lastCompletedRowCount;
+    }
+
+    /**
+     * @return the number of rows completed by the last placed piece, multiplied by the number of its cells in these rows (counted before the clear).
+     */
+    public int getLastErodedPieceCellCount() {
+        return lastErodedPieceCellCount;
+    }
+
+    /**
+     * @return the Zobrist key of the locked cells.
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * @param currentPieceKind  the kind of the piece to be placed next (see {@link ShapeKind#getId()}).
+     * @param upcomingPieceKind the kind of the piece which follows it, {@link ShapeKind#NULL} if the state should not depend on it.
+     * @return the Zobrist key of the locked cells and of the given pieces.
+     */
+    public long getZobristKey(int currentPieceKind, int upcomingPieceKind) {
+        return zobristKey ^ ZobristKeys.getCurrentPieceKey(currentPieceKind) ^ ZobristKeys.getUpcomingPieceKey(upcomingPieceKind);
+    }
+
+    public boolean hasFallingPiece() {
+        return fallingPieceKind != ShapeKind.NULL.getId();
+    }
+
+    public ShapeKind getFallingPieceKind() {
+        return ShapeKind.fromId(fallingPieceKind);
+    }
+
+    public int getFallingPieceOrientation() {
+        return fallingPieceOrientation;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public int getFallingPieceRowIndex() {
+        return fallingPieceRowIndex;
+    }
+
+    public int getFallingPieceColumnIndex() {
+        return fallingPieceColumnIndex;
+    }
+
+    private void resetFallingPiece(ShapeKind newFallingPieceKind) {
+        this.fallingPieceKind = newFallingPieceKind.getId();
+        this.fallingPieceOrientation = Orientation.UP.getValue();
+        this.fallingPieceRowIndex = 0;  // new piece starts at the top of the board.
+        this.fallingPieceColumnIndex = columnCount / 2 - 1; // new piece starts in the middle of the horizontal line.
+    }
+
+    private void lockFallingPiece() {
+        if (hasFallingPiece()) {
+            undoJournalSize = 0;
+        }
+
+        lockPiece(fallingPieceKind, fallingPieceOrientation, fallingPieceRowIndex, fallingPieceColumnIndex);
+    }
+
+    private void lockPiece(int kind, int orientation, int pieceRowIndex, int pieceColumnIndex) {
+        int packedCells = ShapeRotations.getPackedCells(kind, orientation);
+
+        for (int k = 0; k < ShapeRotations.getCellCount(kind, orientation); k++) {
+            int rowIndex = pieceRowIndex + ShapeRotations.getCellRowOffset(packedCells, k);
+            int columnIndex = pieceColumnIndex + ShapeRotations.getCellColumnOffset(packedCells, k);
+
+            if (isInsideBoard(rowIndex, columnIndex)) {
+                addToRow(rowIndex, 1 << columnIndex);
+                cellKinds[rowIndex * columnCount + columnIndex] = (byte) kind;
+            }
+        }
+    }
+
+    /**
+     * Removes the complete rows found between the given rows (both included), pulling everything above them down.
+     *
+     * @return the number of cleared rows.
+     */
+    private int clearCompleteRows(int topRowIndex, int bottomRowIndex) {
+        // Pull the incomplete rows of the window down over the completed ones...
+        int targetRowIndex = bottomRowIndex;
+        int clearedColumnCells = 0;
+
+        for (int i = bottomRowIndex; i >= topRowIndex; i--) {
+            if (rows[i] == fullRowMask) {
+                clearedColumnCells |= getColumnCell(i);
+                continue;
+            }
+
+            if (targetRowIndex != i) {
+                rows[targetRowIndex] = rows[i];
+                System.arraycopy(cellKinds, i * columnCount, cellKinds, targetRowIndex * columnCount, columnCount);
+            }
+
+            targetRowIndex--;
+        }
+
+        int clearedRowCount = targetRowIndex - topRowIndex + 1;
+
+        // ... then move everything above the window down in one go and empty what is left at the top.
+        System.arraycopy(rows, 0, rows, clearedRowCount, topRowIndex);
+        System.arraycopy(cellKinds, 0, cellKinds, clearedRowCount * columnCount, topRowIndex * columnCount);
+
+        Arrays.fill(rows, 0, clearedRowCount, 0);
+        Arrays.fill(cellKinds, 0, clearedRowCount * columnCount, (byte) 0);
+
+        for (int j = 0; j < columnCount; j++) {
+            columns[j] = removeColumnCells(columns[j], clearedColumnCells);
+        }
+
+        occupiedCellCount -= clearedRowCount * columnCount;
+        completeRowCount -= clearedRowCount;
+        recomputeColumnFeatures();
+        recomputeZobristKey();
+
+        return clearedRowCount;
+    }
+
+    private void recordPlacement(int kind, int orientation, int pieceRowIndex, int shift) {
+        int topOffset = ShapeRotations.getTopOffset(kind, orientation);
+        int height = ShapeRotations.getHeight(kind, orientation);
+        int completedRowCount = 0;
+        int erodedCellCount = 0;
+
+        for (int r = topOffset; r < topOffset + height; r++) {
+            if (rows[pieceRowIndex + r] == fullRowMask) {
+                completedRowCount++;
+                erodedCellCount += Integer.bitCount(ShapeRotations.getRowMask(kind, orientation, r) << shift);
+            }
+        }
+
+        lastLandingHeight = rowCount - pieceRowIndex - topOffset - (height - 1) / 2.0;
+        lastCompletedRowCount = completedRowCount;
+        lastErodedPieceCellCount = completedRowCount * erodedCellCount;
+    }
+
+    /**
+     * Adds 1 to the bit-sliced counter of every column set in the given mask (a ripple-carry addition, one plane at a time).
+     */
+    private void incrementCounters(int columnsMask) {
+        int carry = columnsMask;
+
+        for (int b = 0; carry != 0 && b < counterPlanes.length; b++) {
+            int nextCarry = counterPlanes[b] & carry;
+
+            counterPlanes[b] ^= carry;
+            carry = nextCarry;
+        }
+    }
+
+    private void addToRow(int rowIndex, int rowMask) {
+        setRow(rowIndex, rows[rowIndex] | rowMask);
+    }
+
+    private void setRow(int rowIndex, int newRow) {
+        int previousRow = rows[rowIndex];
+        int columnCell = getColumnCell(rowIndex);
+
+        rows[rowIndex] = newRow;
+
+        for (int changedCells = previousRow ^ newRow; changedCells != 0; changedCells &= changedCells - 1) {
+            int column = Integer.numberOfTrailingZeros(changedCells);
+
+            zobristKey ^= zobristCellKeys[rowIndex * columnCount + column];
+            setColumn(column, columns[column] ^ columnCell);
+        }
+
+        int newFilledCellCount = filledCellCounts[newRow];
+        int previousFilledCellCount = filledCellCounts[previousRow];
+
+        occupiedCellCount += newFilledCellCount - previousFilledCellCount;
+        completeRowCount += (newFilledCellCount == columnCount ? 1 : 0) - (previousFilledCellCount == columnCount ? 1 : 0);
+        nearCompleteRowCount += (isNearComplete(newRow, newFilledCellCount) ? 1 : 0) - (isNearComplete(previousRow, previousFilledCellCount) ? 1 : 0);
+    }
+
+    private boolean isNearComplete(int row, int filledCellCount) {
+        return row != 0 && filledCellCount == columnCount - 1;
+    }
+
+    private void setColumn(int column, int newColumn) {
+        int previousHeight = getColumnHeight(column);
+
+        columns[column] = newColumn;
+
+        int height = getColumnHeight(column);
+
+        if (height != previousHeight) {
+            if (column > 0) {
+                int leftHeight = getColumnHeight(column - 1);
+                bumpiness += Math.abs(leftHeight - height) - Math.abs(leftHeight - previousHeight);
+            }
+            if (column < columnCount - 1) {
+                int rightHeight = getColumnHeight(column + 1);
+                bumpiness += Math.abs(rightHeight - height) - Math.abs(rightHeight - previousHeight);
+            }
+
+            aggregateHeight += height - previousHeight;
+        }
+    }
+
+    /**
+     * @return the bit of the given row in the column-major bitboard.
+     */
+    private int getColumnCell(int rowIndex) {
+        return 1 << (rowCount - 1 - rowIndex);
+    }
+
+    /**
+     * Transposes the rows into the columns.
+     */
+    private void recomputeColumns() {
+        Arrays.fill(columns, 0);
+
+        for (int i = 0; i < rowCount; i++) {
+            int columnCell = getColumnCell(i);
+
+            for (int cells = rows[i]; cells != 0; cells &= cells - 1) {
+                columns[Integer.numberOfTrailingZeros(cells)] |= columnCell;
+            }
+        }
+
+        recomputeColumnFeatures();
+    }
+
+    private void recomputeColumnFeatures() {
+        aggregateHeight = 0;
+        bumpiness = 0;
+
+        for (int j = 0; j < columnCount; j++) {
+            aggregateHeight += getColumnHeight(j);
+
+            if (j > 0) {
+                bumpiness += Math.abs(getColumnHeight(j - 1) - getColumnHeight(j));
+            }
+        }
+    }
+
+    private void recomputeZobristKey() {
+        zobristKey = 0L;
+
+        for (int i = 0; i < rowCount; i++) {
+            for (int cells = rows[i]; cells != 0; cells &= cells - 1) {
+                zobristKey ^= zobristCellKeys[i * columnCount + Integer.numberOfTrailingZeros(cells)];
+            }
+        }
+    }
+
+    private int getFallingPieceTopRowIndex() {
+        return Math.max(0, fallingPieceRowIndex + ShapeRotations.getTopOffset(fallingPieceKind, fallingPieceOrientation));
+    }
+
+    private int getFallingPieceBottomRowIndex() {
+        return fallingPieceRowIndex + ShapeRotations.getTopOffset(fallingPieceKind, fallingPieceOrientation) + ShapeRotations.getHeight(fallingPieceKind, fallingPieceOrientation) - 1;
+    }
+
+    private int getFallingPieceRowMask(int row) {
+        int kind = fallingPieceKind;
+        int orientation = fallingPieceOrientation;
+        int rowOffset = row - fallingPieceRowIndex;
+
+        if (rowOffset < 0 || rowOffset >= ShapeRotations.MAX_SCHEMA_SIZE) {
+            return 0;
+        }
+
+        return shiftRowMask(ShapeRotations.getRowMask(kind, orientation, rowOffset), fallingPieceColumnIndex + ShapeRotations.getLeftOffset(kind, orientation));
+    }
+
+    private boolean isInsideBoard(int row, int column) {
+        return row >= 0 && row < rowCount && column >= 0 && column < columnCount;
+    }
+
+    /**
+     * Moves a shape row mask (see {@link ShapeRotations#getRowMask(int, int, int)}) to the given board column, dropping the bits which end up outside the board on the left.
+     */
+    private static int shiftRowMask(int rowMask, int shift) {
+        return shift >= 0 ? rowMask << shift : rowMask >>> -shift;
+    }
+
+    /**
+     * Removes the given cells from a column, pulling the cells above each of them down by one.
+     */
+    private static int removeColumnCells(int column, int cellsMask) {
+        // Highest cell first, so the positions of the lower ones still hold.
+        while (cellsMask != 0) {
+            int belowMask = Integer.highestOneBit(cellsMask) - 1;
+
+            column = (column & belowMask) | (column >>> 1 & ~belowMask);
+            cellsMask &= belowMask;
+        }
+
+        return column;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+    // Collisions:
+    ////////////////////////////////////////////////////////////////////////////////
+
+    private enum CollisionLocation {
+        NONE,
+        TOP,
+        LEFT,
+        RIGHT,
+        BOTTOM
+    }
+
+    private boolean isFallingPieceOverlapping() {
+        return isPieceOverlapping(fallingPieceKind, fallingPieceOrientation, fallingPieceRowIndex, fallingPieceColumnIndex);
+    }
+
+    private boolean isPieceOverlapping(int kind, int orientation, int pieceRowIndex, int pieceColumnIndex) {
+        int topOffset = ShapeRotations.getTopOffset(kind, orientation);
+        int shift = pieceColumnIndex + ShapeRotations.getLeftOffset(kind, orientation);
+
+        for (int r = topOffset; r < topOffset + ShapeRotations.getHeight(kind, orientation); r++) {
+            int rowIndex = pieceRowIndex + r;
+
+            if (rowIndex >= 0 && rowIndex < rowCount && (rows[rowIndex] & shiftRowMask(ShapeRotations.getRowMask(kind, orientation, r), shift)) != 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * <pre>
+     * Finds the row where the piece would stop if dropped straight down from the given position.
+     * As long as the piece is above the surface of every column it spans, this is a single min() over its bottom profile.
+     * Otherwise (the piece was slid under an overhang) the rows underneath are checked one by one.
+     * </pre>
+     */
+    private int getLandingRowIndex(int kind, int orientation, int pieceRowIndex, int pieceColumnIndex) {
+        int width = ShapeRotations.getWidth(kind, orientation);
+
+        if (width == 0) {
+            return pieceRowIndex;
+        }
+
+        int shift = pieceColumnIndex + ShapeRotations.getLeftOffset(kind, orientation);
+        int landingRowIndex = Integer.MAX_VALUE;
+
+        for (int c = 0; c < width; c++) {
+            int surfaceRowIndex = rowCount - getColumnHeight(shift + c);
+
+            landingRowIndex = Math.min(landingRowIndex, surfaceRowIndex - 1 - ShapeRotations.getBottomOffset(kind, orientation, c));
+        }
+
+        if (landingRowIndex >= pieceRowIndex) {
+            return landingRowIndex;
+        }
+
+        while (!isPieceCollidingBottom(kind, orientation, pieceRowIndex, pieceColumnIndex)) {
+            pieceRowIndex++;
+        }
+
+        return pieceRowIndex;
+    }
+
+    /**
+     * Tells whether the piece touches either the floor or another piece underneath it, checking the rows right below the piece.
+     */
+    private boolean isPieceCollidingBottom(int kind, int orientation, int pieceRowIndex, int pieceColumnIndex) {
+        int topOffset = ShapeRotations.getTopOffset(kind, orientation);
+        int height = ShapeRotations.getHeight(kind, orientation);
+
+        if (pieceRowIndex + topOffset + height - 1 >= rowCount - 1) {
+            return true;
+        }
+
+        int shift = pieceColumnIndex + ShapeRotations.getLeftOffset(kind, orientation);
+
+        for (int r = topOffset; r < topOffset + height; r++) {
+            if ((rows[pieceRowIndex + r + 1] & ShapeRotations.getRowMask(kind, orientation, r) << shift) != 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isPieceTouchingOtherPieceLeft() {
+        assertCurrentPieceNotNull();
+
+        int kind = fallingPieceKind;
+        int orientation = fallingPieceOrientation;
+        int topOffset = ShapeRotations.getTopOffset(kind, orientation);
+        int shift = fallingPieceColumnIndex + ShapeRotations.getLeftOffset(kind, orientation);
+
+        for (int r = topOffset; r < topOffset + ShapeRotations.getHeight(kind, orientation); r++) {
+            if ((rows[fallingPieceRowIndex + r] & shiftRowMask(ShapeRotations.getRowMask(kind, orientation, r), shift - 1)) != 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isPieceTouchingLeftWall() {
+        assertCurrentPieceNotNull();
+
+        return fallingPieceColumnIndex + ShapeRotations.getLeftOffset(fallingPieceKind, fallingPieceOrientation) == 0;
+    }
+
+    private boolean isPieceTouchingOtherPieceRight() {
+        assertCurrentPieceNotNull();
+
+        int kind = fallingPieceKind;
+        int orientation = fallingPieceOrientation;
+        int topOffset = ShapeRotations.getTopOffset(kind, orientation);
+        int shift = fallingPieceColumnIndex + ShapeRotations.getLeftOffset(kind, orientation);
+
+        for (int r = topOffset; r < topOffset + ShapeRotations.getHeight(kind, orientation); r++) {
+            if ((rows[fallingPieceRowIndex + r] & ShapeRotations.getRowMask(kind, orientation, r) << (shift + 1)) != 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isPieceTouchingRightWall() {
+        assertCurrentPieceNotNull();
+
+        return fallingPieceColumnIndex + ShapeRotations.getLeftOffset(fallingPieceKind, fallingPieceOrientation) + ShapeRotations.getWidth(fallingPieceKind, fallingPieceOrientation) - 1 == columnCount - 1;
+    }
+
+    private CollisionLocation isPiecePartiallyOutsideGrid() {
+        assertCurrentPieceNotNull();
+
+        int kind = fallingPieceKind;
+        int orientation = fallingPieceOrientation;
+        int leftColumnIndex = fallingPieceColumnIndex + ShapeRotations.getLeftOffset(kind, orientation);
+        int topRowIndex = fallingPieceRowIndex + ShapeRotations.getTopOffset(kind, orientation);
+
+        if (leftColumnIndex < 0) {
+            return CollisionLocation.LEFT;
+        }
+        if (leftColumnIndex + ShapeRotations.getWidth(kind, orientation) - 1 > columnCount - 1) {
+            return CollisionLocation.RIGHT;
+        }
+        if (topRowIndex < 0) {
+            return CollisionLocation.TOP;
+        }
+        if (topRowIndex + ShapeRotations.getHeight(kind, orientation) - 1 > rowCount - 1) {
+            return CollisionLocation.BOTTOM;
+        }
+
+        return CollisionLocation.NONE;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+    // Utils:
+    ////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @param orientationDelta how many orientations to advance clockwise (3 is equivalent to one counterclockwise rotation).
+     */
+    private void rotatePieceOnceInternal(int orientationDelta) {
+        // The square (and the Null) need no rotation.
+        if (ShapeRotations.getUniqueOrientationCount(fallingPieceKind) > 1) {
+            int initialOrientation = fallingPieceOrientation;
+            int initialRowIndex = fallingPieceRowIndex;
+            int initialColumnIndex = fallingPieceColumnIndex;
+
+            // Test collision with left, right and bottom sides after applying the rotation.
+            // If colliding with a wall, forcefully translate the current piece in the opposite direction.
+
+            LOG.trace("Applying rotation to current piece [{}]", this::getFallingPieceKind);
+
+            fallingPieceOrientation = (fallingPieceOrientation + orientationDelta) % ShapeRotations.ORIENTATION_COUNT;
+
+            boolean isPieceOutside = true;
+
+            do {
+                switch (isPiecePartiallyOutsideGrid()) {
+                    case TOP:
+                        fallingPieceRowIndex++;
+                        break;
+
+                    case LEFT:
+                        fallingPieceColumnIndex++;
+                        break;
+
+                    case RIGHT:
+                        fallingPieceColumnIndex--;
+                        break;
+
+                    case BOTTOM:
+                        fallingPieceRowIndex--;
+                        break;
+
+                    case NONE:
+                    default:
+                        isPieceOutside = false;
+                        break;
+                }
+            } while (isPieceOutside);
+
+            if (isFallingPieceOverlapping()) {
+                LOG.debug("Rolling back last rotation for piece [{}] ...", this::getFallingPieceKind);
+
+                fallingPieceOrientation = initialOrientation;
+                fallingPieceRowIndex = initialRowIndex;
+                fallingPieceColumnIndex = initialColumnIndex;
+            }
+        }
+    }
+
+    private void assertCurrentPieceNotNull() {
+        if (!hasFallingPiece()) {
+            throw new IllegalStateException("Cannot invoke method if there is no current piece in the board");
+        }
+    }
+}
@@ -7,6 +7,9 @@ public enum Orientation {
     DOWN(2),
     LEFT(3);
 
+    // Cached, since values() returns a new array on every call.
+    private static final Orientation[] ORIENTATIONS_BY_VALUE = values();
+
     private final int value;
 
     Orientation(int value) {
@@ -18,22 +21,10 @@ public enum Orientation {
     }
 
     public Orientation previous() {
-        int val = value == values()[0].getValue() ? values()[values().length - 1].getValue() : (value - 1);
-        return getOrientationWithValue(val);
+        return ORIENTATIONS_BY_VALUE[(value + ORIENTATIONS_BY_VALUE.length - 1) % ORIENTATIONS_BY_VALUE.length];
     }
 
     public Orientation next() {
-        int val = value == values()[values().length - 1].getValue() ? values()[0].getValue() : (value + 1);
-        return getOrientationWithValue(val);
-    }
-
-    private Orientation getOrientationWithValue(int val) {
-        for (Orientation ori : values()) {
-            if (ori.getValue() == val) {
-                return ori;
-            }
-        }
-
-        return null;
+        return ORIENTATIONS_BY_VALUE[(value + 1) % ORIENTATIONS_BY_VALUE.length];
     }
 }
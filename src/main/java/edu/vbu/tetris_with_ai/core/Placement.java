@@ -0,0 +1,31 @@
+package edu.vbu.tetris_with_ai.core;
+
+/**
+ * <pre>
+ * Target of the falling piece: its orientation value and the column of its schema (see {@link Board#getFallingPieceColumnIndex()}).
+ * The piece gets there the way a player would move it: rotations first, then moves to the side, then a drop.
+ * </pre>
+ */
+public final class Placement {
+
+    private final int orientation;
+    private final int columnIndex;
+
+    public Placement(int orientation, int columnIndex) {
+        this.orientation = orientation;
+        this.columnIndex = columnIndex;
+    }
+
+    public int getOrientation() {
+        return orientation;
+    }
+
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    @Override
+    public String toString() {
+        return "Placement [orientation = " + orientation + ", column = " + columnIndex + "]";
+    }
+}
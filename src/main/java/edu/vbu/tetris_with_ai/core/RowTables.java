@@ -0,0 +1,58 @@
+package edu.vbu.tetris_with_ai.core;
+
+import edu.vbu.tetris_with_ai.utils.Constants;
+
+/**
+ * <pre>
+ * Row-local metrics of every possible row of a given width, indexed by the row bitmask (see {@link Board}),
+ * so evaluating a board sums one lookup per row instead of working through its cells.
+ *
+ * A 14-cell row has 16,384 possible patterns, so the tables of the default width take about 100 KB and are built when this class is loaded.
+ * The tables of other widths are built the first time a board of that width is created, and shared by all the boards of that width.
+ * </pre>
+ */
+final class RowTables {
+
+    static final int MAX_WIDTH = 20;        // 2^20 entries per table.
+
+    private static final RowTables[] TABLES_BY_WIDTH = new RowTables[MAX_WIDTH + 1];
+
+    static {
+        forWidth(Constants.CELL_COUNT_HORIZONTALLY);
+    }
+
+    final byte[] filledCellCounts;
+    final byte[] transitionCounts;      // filled / empty horizontal neighbours, walls counting as filled; 0 for an empty row.
+    final int[] wellMasks;              // empty cells of the row whose left and right neighbours are filled (walls counting as filled).
+
+    private RowTables(int width) {
+        int patternCount = 1 << width;
+        int fullRowMask = patternCount - 1;
+        int walls = 1 | 1 << (width + 1);
+        int transitionsMask = (1 << (width + 1)) - 1;
+
+        filledCellCounts = new byte[patternCount];
+        transitionCounts = new byte[patternCount];
+        wellMasks = new int[patternCount];
+
+        for (int row = 0; row < patternCount; row++) {
+            int walledRow = row << 1 | walls;
+
+            filledCellCounts[row] = (byte) Integer.bitCount(row);
+            transitionCounts[row] = (byte) (row == 0 ? 0 : Integer.bitCount((walledRow ^ walledRow >>> 1) & transitionsMask));
+            wellMasks[row] = ~row & (row << 1 | 1) & (row >>> 1 | 1 << (width - 1)) & fullRowMask;
+        }
+    }
+
+    static synchronized RowTables forWidth(int width) {
+        if (width < 1 || width > MAX_WIDTH) {
+            throw new IllegalArgumentException("Row tables can only be built for rows of 1 to " + MAX_WIDTH + " cells, got " + width);
+        }
+
+        if (TABLES_BY_WIDTH[width] == null) {
+            TABLES_BY_WIDTH[width] = new RowTables(width);
+        }
+
+        return TABLES_BY_WIDTH[width];
+    }
+}
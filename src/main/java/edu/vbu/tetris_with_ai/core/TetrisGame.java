@@ -1,9 +1,8 @@
 package edu.vbu.tetris_with_ai.core;
 
-import edu.vbu.tetris_with_ai.core.shapes.Shape;
-import edu.vbu.tetris_with_ai.core.shapes.Shapes;
-import edu.vbu.tetris_with_ai.ui.GameGrid;
-import edu.vbu.tetris_with_ai.ui.GameViewport;
+import edu.vbu.tetris_with_ai.core.shapes.PieceGenerator;
+import edu.vbu.tetris_with_ai.core.shapes.ShapeKind;
+import edu.vbu.tetris_with_ai.core.shapes.ShapeRotations;
 import edu.vbu.tetris_with_ai.utils.Constants;
 import edu.vbu.tetris_with_ai.utils.VoidFunctionNoArg;
 import edu.vbu.tetris_with_ai.utils.VoidFunctionOneArg;
@@ -11,7 +10,6 @@ import edu.vbu.tetris_with_ai.utils.VoidFunctionTwoArgs;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.awt.*;
 import java.util.Optional;
 
 /**
@@ -19,6 +17,9 @@ import java.util.Optional;
  * Handles the game's logic.
  * A UI wrapper can be used to present the status of a game instance to the user.
  * A wrapper can be used to map user input to game controls.
+ *
+ * The game itself never touches any UI class: wrappers are only notified through the callbacks,
+ * so games can run without a display (see {@link edu.vbu.tetris_with_ai.TetrisForHeadlessGeneticAIs}).
  * </pre>
  */
 public final class TetrisGame {
@@ -29,28 +30,46 @@ public final class TetrisGame {
 
     private long initialDelay;
 
-    private GameGrid gameGrid;
-    private GameViewport pairedViewport;
+    private final Board board;
+    private PieceGenerator pieceGenerator;
 
-    private VoidFunctionNoArg onGameOverCallback;
+    private VoidFunctionOneArg<EndGameReason> onGameOverCallback;
+    private VoidFunctionOneArg<Boolean> onTopGameMarkChangedCallback;
+    private VoidFunctionOneArg<String> onResetCallback;
+    private VoidFunctionNoArg onBoardChangedCallback;
     private VoidFunctionOneArg<String> onSpawnPieceCallback;
     private VoidFunctionTwoArgs<Integer, Double> onScoreIncreasedCallback;
 
-    private Shape upcomingPiece;
+    private ShapeKind upcomingPiece;
     private boolean isGameSessionRunning;
+    private boolean isTopGame;
     private Thread pieceDescendingThread;
     private double pieceMoveDownTimesPerSecond;
     private double score;
     private int level;
     private int clearedLinesCount;
 
+    // Virtual clock: one tick per game loop cycle, whatever the real time it took.
+    private long tickCount;
+    private int placedPieceCount;
+    private long tickLimit;                 // 0 means no limit (same for the piece limit).
+    private int pieceLimit;
+
     public TetrisGame() {
         this(0);
     }
 
     public TetrisGame(int id) {
+        this(id, new PieceGenerator());
+    }
+
+    /**
+     * @param pieceGenerator source of every piece of this game (and of the following ones, after a reset).
+     */
+    public TetrisGame(int id, PieceGenerator pieceGenerator) {
         this.id = id;
-        this.gameGrid = initGameGrid();
+        this.board = initBoard();
+        this.pieceGenerator = pieceGenerator;
     }
 
     public void startGame(long initialDelay) {
@@ -64,6 +83,7 @@ public final class TetrisGame {
 
         // Spawn initial piece.
         spawnNewPiece();
+        notifyBoardChanged();
 
         // Init session vars.
         isGameSessionRunning = true;
@@ -71,6 +91,8 @@ public final class TetrisGame {
         score = 0;
         level = 0;
         clearedLinesCount = 0;
+        tickCount = 0;
+        placedPieceCount = 0;
 
         if (startGameLoop) {
             // Initial delay.
@@ -95,6 +117,8 @@ public final class TetrisGame {
     public enum EndGameReason {
         NORMAL_END,
         ERROR,
+
+        /** The game ran out of ticks or pieces (see {@link #setLimits(long, int)}). */
         FORCED_BY_TIMEOUT
     }
 
@@ -108,69 +132,130 @@ public final class TetrisGame {
                 pieceDescendingThread.interrupt();
             }
 
-            if (reason == EndGameReason.ERROR) {
-                pairedViewport.setBackground(Color.red);
-            } else if (reason == EndGameReason.FORCED_BY_TIMEOUT) {
-                pairedViewport.setBackground(Color.orange);
-            }
-
-            Optional.ofNullable(onGameOverCallback).ifPresent(VoidFunctionNoArg::call);
+            Optional.ofNullable(onGameOverCallback).ifPresent(callback -> callback.call(reason));
         }
     }
 
     public void markAsTopGame(boolean isTop) {
-        if (isTop) {
-            pairedViewport.setBackground(Color.green);
+        isTopGame = isTop;
+
+        Optional.ofNullable(onTopGameMarkChangedCallback).ifPresent(callback -> callback.call(isTop));
+    }
+
+    public boolean isTopGame() {
+        return isTopGame;
+    }
+
+    public void gameLoopSingleCycle() throws Exception {
+        if (board.isPieceCollidingBottom()) {
+            settleFallingPiece();
         } else {
-            pairedViewport.setBackground(Constants.BACKGROUND_COLOUR_LIGHT);
+            board.movePieceDownOneRow();
         }
+
+        advanceClock(1);
+        notifyBoardChanged();
     }
 
-    public void unmark() {
-        if (pairedViewport.getBackground() != Color.green) {
-            pairedViewport.setBackground(Constants.BACKGROUND_COLOUR_LIGHT);
+    /**
+     * <pre>
+     * Brings the falling piece to the given placement (rotating it first, then moving it sideways) and drops it,
+     * then locks it, clears the completed lines and spawns the next piece: a whole turn in a single call.
+     * Rotations and moves which are blocked are skipped, exactly like the corresponding actions would be.
+     *
+     * The clock advances as if the same actions were played one per game loop cycle (rotations, moves, then the drop),
+     * so tick limits mean the same in both cases.
+     * </pre>
+     */
+    public void performPlacement(Placement placement) {
+        if (placement == null) {
+            return;
         }
-    }
 
-    public void gameLoopSingleCycle() throws Exception {
-        if (gameGrid.isPieceCollidingBottom()) {
-            int clearedRows = gameGrid.tryClearCompletedHorizLines();
-            if (clearedRows > 0) {
-                // If there were any completed (and cleared by now) horizontal lines, raise the score accordingly.
-                increaseScoreByCompletedLines(clearedRows);
-            }
+        LOG.debug("Performing the following placement upon current Tetris game and shape [{}] : {}", board::getFallingPieceKind, () -> placement);
 
-            try {
-                spawnNewPiece();
-            } catch (IllegalStateException e) {
-                // Failure to apply the new piece's colours in one or more cells means the place is already (partially) occupied by other piece(s).
-                // Consider it to be game over.
-                endGame(EndGameReason.NORMAL_END);
-            }
-        } else {
-            gameGrid.movePieceDownOneRow();
+        int rotationCount = (placement.getOrientation() - board.getFallingPieceOrientation() + ShapeRotations.ORIENTATION_COUNT) % ShapeRotations.ORIENTATION_COUNT;
+
+        for (int k = 0; k < rotationCount; k++) {
+            board.rotatePieceRightOnce();
+        }
+
+        int sideMoveCount = 0;
+
+        while (board.getFallingPieceColumnIndex() < placement.getColumnIndex() && board.movePieceRightOneColumn()) {
+            sideMoveCount++;
         }
+        while (board.getFallingPieceColumnIndex() > placement.getColumnIndex() && board.movePieceLeftOneColumn()) {
+            sideMoveCount++;
+        }
+
+        int moveCount = board.instantDropPiece();
+
+        increaseScore(moveCount * Constants.SCORE_PER_PIECE_DOWN_MOVE);
+        settleFallingPiece();
+        advanceClock(rotationCount + sideMoveCount + 1);
+        notifyBoardChanged();
     }
 
     public boolean isGameOver() {
         return !isGameSessionRunning;
     }
 
+    /**
+     * The game ends (see {@link EndGameReason#FORCED_BY_TIMEOUT}) as soon as either limit is reached; a limit of 0 disables it.
+     * Limits are kept across resets.
+     *
+     * @param tickLimit  number of game loop cycles (one cycle takes one second at the starting level, when the game runs its own loop).
+     * @param pieceLimit number of pieces locked on the board.
+     */
+    public void setLimits(long tickLimit, int pieceLimit) {
+        this.tickLimit = tickLimit;
+        this.pieceLimit = pieceLimit;
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    public int getPlacedPieceCount() {
+        return placedPieceCount;
+    }
+
     public void reset(String newGameLabel) {
-        gameGrid = initGameGrid();
+        board.reset();
         upcomingPiece = null;
 
-        pairedViewport.setTetrisGame(this);
-        pairedViewport.resetDisplayedData(newGameLabel);
+        Optional.ofNullable(onResetCallback).ifPresent(callback -> callback.call(newGameLabel));
 
-        unmark();
         startGame(initialDelay, false);
     }
 
-    public void setOnGameOverCallback(VoidFunctionNoArg onGameOverCallback) {
+    /**
+     * @param pieceGenerator source of the pieces, starting with the next (re)start of this game.
+     */
+    public void setPieceGenerator(PieceGenerator pieceGenerator) {
+        this.pieceGenerator = pieceGenerator;
+    }
+
+    public void setOnGameOverCallback(VoidFunctionOneArg<EndGameReason> onGameOverCallback) {
         this.onGameOverCallback = onGameOverCallback;
     }
 
+    public void setOnTopGameMarkChangedCallback(VoidFunctionOneArg<Boolean> onTopGameMarkChangedCallback) {
+        this.onTopGameMarkChangedCallback = onTopGameMarkChangedCallback;
+    }
+
+    /**
+     * @param onResetCallback receives the label of the new game.
+     */
+    public void setOnResetCallback(VoidFunctionOneArg<String> onResetCallback) {
+        this.onResetCallback = onResetCallback;
+    }
+
+    public void setOnBoardChangedCallback(VoidFunctionNoArg onBoardChangedCallback) {
+        this.onBoardChangedCallback = onBoardChangedCallback;
+    }
+
     public void setOnSpawnPieceCallback(VoidFunctionOneArg<String> onSpawnPieceCallback) {
         this.onSpawnPieceCallback = onSpawnPieceCallback;
     }
@@ -179,32 +264,31 @@ public final class TetrisGame {
         this.onScoreIncreasedCallback = onScoreIncreasedCallback;
     }
 
-    public GameGrid getGameGrid() {
-        return gameGrid;
+    public Board getBoard() {
+        return board;
     }
 
     public double getScore() {
         return score;
     }
 
-    public void setGameGrid(GameGrid gameGrid) {
-        this.gameGrid = gameGrid;
+    /**
+     * @return the kind of the piece which will follow the falling one, {@link ShapeKind#NULL} if the game has not started yet.
+     */
+    public ShapeKind getUpcomingPieceKind() {
+        return upcomingPiece != null ? upcomingPiece : ShapeKind.NULL;
     }
 
     public int getId() {
         return id;
     }
 
-    public void setPairedViewport(GameViewport gameViewport) {
-        this.pairedViewport = gameViewport;
-    }
-
     public void performAction(Action action) {
         if (action == null) {
             return;
         }
 
-        LOG.debug("Performing the following action upon current Tetris game and shape [{}] : {}", gameGrid::getCurrFallPiece, () -> action);
+        LOG.debug("Performing the following action upon current Tetris game and shape [{}] : {}", board::getFallingPieceKind, () -> action);
 
         switch (action) {
             case MOVE_DOWN_ONCE:
@@ -234,58 +318,100 @@ public final class TetrisGame {
     // Begin delegates.
 
     public void movePieceDownOneRow() {
-        boolean movedOneRow = gameGrid.movePieceDownOneRow();
+        boolean movedOneRow = board.movePieceDownOneRow();
 
         increaseScore(movedOneRow ? Constants.SCORE_PER_PIECE_DOWN_MOVE : 0.0);
+        notifyBoardChanged();
     }
 
     public void movePieceLeftOneColumn() {
-        gameGrid.movePieceLeftOneColumn();
+        board.movePieceLeftOneColumn();
+        notifyBoardChanged();
     }
 
     public void movePieceRightOneColumn() {
-        gameGrid.movePieceRightOneColumn();
+        board.movePieceRightOneColumn();
+        notifyBoardChanged();
     }
 
     public void rotatePieceLeftOnce() {
-        gameGrid.rotatePieceLeftOnce();
+        board.rotatePieceLeftOnce();
+        notifyBoardChanged();
     }
 
     public void rotatePieceRightOnce() {
-        gameGrid.rotatePieceRightOnce();
+        board.rotatePieceRightOnce();
+        notifyBoardChanged();
     }
 
     public void instantDropPiece() {
-        int moveCount = gameGrid.instantDropPiece();
+        int moveCount = board.instantDropPiece();
 
         increaseScore(moveCount * Constants.SCORE_PER_PIECE_DOWN_MOVE);
+        notifyBoardChanged();
     }
 
     // ~ end of delegates.
 
-    private GameGrid initGameGrid() {
-        return new GameGrid(Constants.CELL_COUNT_HORIZONTALLY, Constants.CELL_COUNT_VERTICALLY, Constants.IS_DOUBLE_BUFFERED);
+    private Board initBoard() {
+        return new Board(Constants.CELL_COUNT_HORIZONTALLY, Constants.CELL_COUNT_VERTICALLY);
+    }
+
+    private void notifyBoardChanged() {
+        Optional.ofNullable(onBoardChangedCallback).ifPresent(VoidFunctionNoArg::call);
+    }
+
+    /**
+     * Locks the falling piece, which has reached the bottom, then spawns the next one.
+     */
+    private void settleFallingPiece() {
+        placedPieceCount++;
+
+        int clearedRows = board.tryClearCompletedHorizLines();
+        if (clearedRows > 0) {
+            // If there were any completed (and cleared by now) horizontal lines, raise the score accordingly.
+            increaseScoreByCompletedLines(clearedRows);
+        }
+
+        try {
+            spawnNewPiece();
+        } catch (IllegalStateException e) {
+            // Failure to apply the new piece's colours in one or more cells means the place is already (partially) occupied by other piece(s).
+            // Consider it to be game over.
+            endGame(EndGameReason.NORMAL_END);
+        }
+    }
+
+    private void advanceClock(int ticks) {
+        tickCount += ticks;
+
+        boolean isTickLimitReached = tickLimit > 0 && tickCount >= tickLimit;
+        boolean isPieceLimitReached = pieceLimit > 0 && placedPieceCount >= pieceLimit;
+
+        if (isTickLimitReached || isPieceLimitReached) {
+            endGame(EndGameReason.FORCED_BY_TIMEOUT);
+        }
     }
 
     private void spawnNewPiece() {
-        Shape upcomingPiece = getUpcomingPiece();
+        ShapeKind upcomingPiece = getUpcomingPiece();
 
         LOG.debug("Spawning next shape: {}", () -> upcomingPiece);
 
-        gameGrid.setCurrentFallingPiece(upcomingPiece);
+        board.setCurrentFallingPiece(upcomingPiece);
 
         Optional.ofNullable(onSpawnPieceCallback).ifPresent(callback -> callback.call(this.upcomingPiece.getName()));
     }
 
-    private Shape getUpcomingPiece() {
-        Shape currentUpcomingPiece = upcomingPiece != null ? upcomingPiece : determineNewUpcomingPiece();
+    private ShapeKind getUpcomingPiece() {
+        ShapeKind currentUpcomingPiece = upcomingPiece != null ? upcomingPiece : determineNewUpcomingPiece();
         upcomingPiece = determineNewUpcomingPiece();
 
         return currentUpcomingPiece;
     }
 
-    private Shape determineNewUpcomingPiece() {
-        Shape chosenShape = Shapes.getRandomShape();
+    private ShapeKind determineNewUpcomingPiece() {
+        ShapeKind chosenShape = pieceGenerator.next();
 
         LOG.debug("Chosen new random upcoming shape: {}", () -> chosenShape);
 
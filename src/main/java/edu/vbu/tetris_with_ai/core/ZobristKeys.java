@@ -0,0 +1,66 @@
+package edu.vbu.tetris_with_ai.core;
+
+import edu.vbu.tetris_with_ai.core.shapes.ShapeRotations;
+
+/**
+ * <pre>
+ * Random 64-bit keys used to hash board states (see {@link Board#getZobristKey(int, int)}).
+ * A state's key is the XOR of the keys of its occupied cells and of its current and upcoming pieces,
+ * so it can be updated with a single XOR whenever a cell changes.
+ *
+ * Keys are derived from the cell/piece index with a fixed seed (no random generator involved),
+ * so boards of the same size always agree on them, whichever thread or game they belong to.
+ * </pre>
+ */
+public abstract class ZobristKeys {
+
+    private static final long SEED = 0x7E7215A1L;
+
+    private static final long[] CURRENT_PIECE_KEYS = new long[ShapeRotations.SHAPE_KIND_COUNT];
+    private static final long[] UPCOMING_PIECE_KEYS = new long[ShapeRotations.SHAPE_KIND_COUNT];
+
+    static {
+        // The Null kind (no piece) keeps a 0 key, so that it leaves the board's key unchanged.
+        for (int kind = 1; kind < ShapeRotations.SHAPE_KIND_COUNT; kind++) {
+            CURRENT_PIECE_KEYS[kind] = mix(SEED + 2 * kind);
+            UPCOMING_PIECE_KEYS[kind] = mix(SEED + 2 * kind + 1);
+        }
+    }
+
+    private ZobristKeys() {
+        // Nothing
+    }
+
+    /**
+     * @return one key per cell, indexed by <i>row * columnCount + column</i>.
+     */
+    static long[] newCellKeys(int rowCount, int columnCount) {
+        long[] cellKeys = new long[rowCount * columnCount];
+
+        for (int i = 0; i < rowCount; i++) {
+            for (int j = 0; j < columnCount; j++) {
+                cellKeys[i * columnCount + j] = mix(~SEED + (long) i * Integer.SIZE + j);
+            }
+        }
+
+        return cellKeys;
+    }
+
+    public static long getCurrentPieceKey(int kind) {
+        return CURRENT_PIECE_KEYS[kind];
+    }
+
+    public static long getUpcomingPieceKey(int kind) {
+        return UPCOMING_PIECE_KEYS[kind];
+    }
+
+    /**
+     * Scrambles the bits of the given value (the finalizer of the SplitMix64 generator).
+     */
+    public static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+
+        return value ^ (value >>> 31);
+    }
+}
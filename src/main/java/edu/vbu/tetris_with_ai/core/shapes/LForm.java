@@ -1,13 +1,9 @@
 package edu.vbu.tetris_with_ai.core.shapes;
 
-import edu.vbu.tetris_with_ai.core.Orientation;
 import edu.vbu.tetris_with_ai.core.Position;
 
-import java.awt.*;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Shape structure (area of 3x3, has 4 different orientations):
@@ -21,7 +17,7 @@ import java.util.Map;
  *     +---+---+---+    +---+---+---+    +---+---+---+    +---+---+---+
  * </pre>
  */
-public class LForm extends Shape {
+abstract class LForm {
 
     private static final List<Position> occupiedCellPositionsUpOrient = Arrays.asList(
             new Position(0, 0),                                                                  // first row
@@ -44,38 +40,13 @@ public class LForm extends Shape {
             new Position(2, 0), new Position(2, 1)   // third row
     );
 
-    private final Map<Orientation, List<Position>> occupiedCellPositions = new HashMap<>(4);
-
-    public LForm() {
-        this(Orientation.UP);
-    }
-
-    public LForm(Orientation initialOrientation) {
-        super("L Form", initialOrientation);
-
-        occupiedCellPositions.put(Orientation.UP, occupiedCellPositionsUpOrient);
-        occupiedCellPositions.put(Orientation.RIGHT, occupiedCellPositionsRightOrient);
-        occupiedCellPositions.put(Orientation.DOWN, occupiedCellPositionsDownOrient);
-        occupiedCellPositions.put(Orientation.LEFT, occupiedCellPositionsLeftOrient);
-    }
-
-    @Override
-    public void rotateLeft() {
-        currentOrientation = currentOrientation.previous();
-    }
-
-    @Override
-    public void rotateRight() {
-        currentOrientation = currentOrientation.next();
-    }
-
-    @Override
-    public List<Position> getOccupiedCellPositions() {
-        return occupiedCellPositions.get(currentOrientation);
-    }
+    static final String NAME = "L Form";
+    static final byte KIND = 1;
+    static final List<List<Position>> OCCUPIED_CELL_POSITIONS = Arrays.asList(
+            occupiedCellPositionsUpOrient, occupiedCellPositionsRightOrient, occupiedCellPositionsDownOrient, occupiedCellPositionsLeftOrient
+    );
 
-    @Override
-    public Color getColour() {
-        return Color.blue;
+    private LForm() {
+        // Nothing
     }
 }
@@ -1,13 +1,9 @@
 package edu.vbu.tetris_with_ai.core.shapes;
 
-import edu.vbu.tetris_with_ai.core.Orientation;
 import edu.vbu.tetris_with_ai.core.Position;
 
-import java.awt.*;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Shape structure (area of 4x4, has 4 different orientations):
@@ -23,7 +19,7 @@ import java.util.Map;
  *     +---+---+---+---+    +---+---+---+---+    +---+---+---+---+    +---+---+---+---+
  * </pre>
  */
-public class Line extends Shape {
+abstract class Line {
 
     private static final List<Position> occupiedCellPositionsUpOrient = Arrays.asList(
                                                                                                                                              // first row
@@ -50,38 +46,13 @@ public class Line extends Shape {
             new Position(3, 1)     // fourth row
     );
 
-    private final Map<Orientation, List<Position>> occupiedCellPositions = new HashMap<>(4);
-
-    public Line() {
-        this(Orientation.UP);
-    }
-
-    public Line(Orientation initialOrientation) {
-        super("Line", initialOrientation);
-
-        occupiedCellPositions.put(Orientation.UP, occupiedCellPositionsUpOrient);
-        occupiedCellPositions.put(Orientation.RIGHT, occupiedCellPositionsRightOrient);
-        occupiedCellPositions.put(Orientation.DOWN, occupiedCellPositionsDownOrient);
-        occupiedCellPositions.put(Orientation.LEFT, occupiedCellPositionsLeftOrient);
-    }
-
-    @Override
-    public void rotateLeft() {
-        currentOrientation = currentOrientation.previous();
-    }
-
-    @Override
-    public void rotateRight() {
-        currentOrientation = currentOrientation.next();
-    }
-
-    @Override
-    public List<Position> getOccupiedCellPositions() {
-        return occupiedCellPositions.get(currentOrientation);
-    }
+    static final String NAME = "Line";
+    static final byte KIND = 3;
+    static final List<List<Position>> OCCUPIED_CELL_POSITIONS = Arrays.asList(
+            occupiedCellPositionsUpOrient, occupiedCellPositionsRightOrient, occupiedCellPositionsDownOrient, occupiedCellPositionsLeftOrient
+    );
 
-    @Override
-    public Color getColour() {
-        return Color.cyan;
+    private Line() {
+        // Nothing
     }
 }
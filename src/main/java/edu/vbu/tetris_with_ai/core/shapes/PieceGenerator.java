@@ -0,0 +1,123 @@
+package edu.vbu.tetris_with_ai.core.shapes;
+
+import java.util.SplittableRandom;
+
+/**
+ * <pre>
+ * Source of the pieces of a single game. Each game owns its generator, so no random state is shared between threads,
+ * and two generators created with the same seed and mode produce the same sequence of pieces.
+ *
+ * A generator can also replay a pre-generated sequence (see {@link #newSequence(int)}), e.g. to have several games play the very same pieces.
+ * </pre>
+ */
+public final class PieceGenerator {
+
+    public enum Mode {
+        /** Every piece is drawn independently, each kind being equally likely. */
+        UNIFORM,
+
+        /** Pieces are dealt from a shuffled "bag" holding one piece of each kind, refilled once empty. */
+        SEVEN_BAG,
+
+        /** Pieces are read from a pre-generated sequence, starting over once it's exhausted. */
+        REPLAY
+    }
+
+    private final SplittableRandom random;
+    private final Mode mode;
+
+    private final byte[] sequence;      // only read, so a single sequence can be shared by the generators of several games.
+    private int nextIndexInSequence;
+
+    private final ShapeKind[] bag;
+    private int nextIndexInBag;
+
+    /**
+     * Creates a generator with an arbitrary seed, for games which don't need to be reproduced.
+     */
+    public PieceGenerator() {
+        this(new SplittableRandom(), Mode.UNIFORM);
+    }
+
+    public PieceGenerator(long seed, Mode mode) {
+        this(new SplittableRandom(seed), mode);
+    }
+
+    /**
+     * @param sequence ids of the pieces to replay (see {@link ShapeKind#getId()}), which is never modified.
+     */
+    public PieceGenerator(byte[] sequence) {
+        if (sequence.length == 0) {
+            throw new IllegalArgumentException("Cannot replay an empty sequence of pieces");
+        }
+
+        this.random = null;
+        this.mode = Mode.REPLAY;
+        this.bag = null;
+        this.sequence = sequence;
+    }
+
+    private PieceGenerator(SplittableRandom random, Mode mode) {
+        if (mode == Mode.REPLAY) {
+            throw new IllegalArgumentException("A generator replaying pieces requires a sequence");
+        }
+
+        this.random = random;
+        this.mode = mode;
+        this.bag = ShapeKind.getPlayableKinds();
+        this.nextIndexInBag = bag.length;
+        this.sequence = null;
+    }
+
+    public ShapeKind next() {
+        if (mode == Mode.REPLAY) {
+            ShapeKind kind = ShapeKind.fromId(sequence[nextIndexInSequence++]);
+
+            if (nextIndexInSequence == sequence.length) {
+                nextIndexInSequence = 0;
+            }
+
+            return kind;
+        }
+
+        if (mode == Mode.UNIFORM) {
+            return ShapeKind.getPlayableKind(random.nextInt(ShapeKind.getPlayableKindCount()));
+        }
+
+        if (nextIndexInBag == bag.length) {
+            shuffleBag();
+        }
+
+        return bag[nextIndexInBag++];
+    }
+
+    /**
+     * @return the ids of the next pieces of this generator, one byte per piece.
+     */
+    public byte[] newSequence(int length) {
+        byte[] newSequence = new byte[length];
+
+        for (int k = 0; k < length; k++) {
+            newSequence[k] = next().getId();
+        }
+
+        return newSequence;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    private void shuffleBag() {
+        // Fisher-Yates shuffle.
+        for (int k = bag.length - 1; k > 0; k--) {
+            int otherIndex = random.nextInt(k + 1);
+            ShapeKind kind = bag[k];
+
+            bag[k] = bag[otherIndex];
+            bag[otherIndex] = kind;
+        }
+
+        nextIndexInBag = 0;
+    }
+}
@@ -0,0 +1,67 @@
+package edu.vbu.tetris_with_ai.core.shapes;
+
+import java.util.Arrays;
+
+/**
+ * <pre>
+ * Immutable description of every type of shape, with no per-piece state: kinds are what the game passes around.
+ * The ordinal of each constant equals its {@link #getId()} value, which indexes the {@link ShapeRotations} tables.
+ * </pre>
+ */
+public enum ShapeKind {
+
+    NULL(Null.KIND, Null.NAME),
+    L_FORM(LForm.KIND, LForm.NAME),
+    L_FORM_MIRROR(LFormMirror.KIND, LFormMirror.NAME),
+    LINE(Line.KIND, Line.NAME),
+    SQUARE(Square.KIND, Square.NAME),
+    T_FORM(TForm.KIND, TForm.NAME),
+    ZIGZAG(Zigzag.KIND, Zigzag.NAME),
+    ZIGZAG_MIRROR(ZigzagMirror.KIND, ZigzagMirror.NAME);
+
+    private static final ShapeKind[] KINDS_BY_ID = values();
+    private static final ShapeKind[] PLAYABLE_KINDS = Arrays.copyOfRange(KINDS_BY_ID, 1, KINDS_BY_ID.length);
+
+    static {
+        for (ShapeKind shapeKind : KINDS_BY_ID) {
+            if (shapeKind.id != shapeKind.ordinal()) {
+                throw new IllegalStateException("Shape kind " + shapeKind + " is declared at position " + shapeKind.ordinal() + " instead of " + shapeKind.id);
+            }
+        }
+    }
+
+    private final byte id;
+    private final String name;
+
+    ShapeKind(byte id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public static ShapeKind fromId(int id) {
+        return KINDS_BY_ID[id];
+    }
+
+    /**
+     * @return all the kinds which can be spawned during a game (every kind except {@link #NULL}).
+     */
+    public static ShapeKind[] getPlayableKinds() {
+        return PLAYABLE_KINDS.clone();
+    }
+
+    static ShapeKind getPlayableKind(int index) {
+        return PLAYABLE_KINDS[index];
+    }
+
+    static int getPlayableKindCount() {
+        return PLAYABLE_KINDS.length;
+    }
+
+    public byte getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,183 @@
+package edu.vbu.tetris_with_ai.core.shapes;
+
+import edu.vbu.tetris_with_ai.core.Orientation;
+import edu.vbu.tetris_with_ai.core.Position;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <pre>
+ * Precomputed, immutable data for every shape kind in every orientation, indexed by [shape kind][orientation value].
+ * Shape kinds are the ones returned by {@link ShapeKind#getId()}; orientation values are the ones of {@link Orientation#getValue()}.
+ *
+ * Besides the cell positions, each entry keeps:
+ *  - the cells packed into a single int (4 bits per cell: row offset in the upper 2 bits, column offset in the lower 2 bits);
+ *  - one bitmask per row of the shape's schema, shifted so that bit 0 is the leftmost occupied column;
+ *  - the bottom profile: for every occupied column (starting from the leftmost one), the row offset of its lowest cell;
+ *  - the bounding box (top/left offsets inside the schema, width and height).
+ * </pre>
+ */
+public abstract class ShapeRotations {
+
+    public static final int SHAPE_KIND_COUNT = 8;      // the Null piece included.
+    public static final int ORIENTATION_COUNT = 4;
+    public static final int MAX_SCHEMA_SIZE = 4;        // every shape fits in a 4x4 schema.
+
+    private static final List<List<Position>> CELL_POSITIONS = new ArrayList<>(Collections.nCopies(SHAPE_KIND_COUNT * ORIENTATION_COUNT, Collections.emptyList()));
+    private static final int[] PACKED_CELLS = new int[SHAPE_KIND_COUNT * ORIENTATION_COUNT];
+    private static final int[] CELL_COUNTS = new int[SHAPE_KIND_COUNT * ORIENTATION_COUNT];
+    private static final int[] ROW_MASKS = new int[SHAPE_KIND_COUNT * ORIENTATION_COUNT * MAX_SCHEMA_SIZE];
+    private static final int[] BOTTOM_OFFSETS = new int[SHAPE_KIND_COUNT * ORIENTATION_COUNT * MAX_SCHEMA_SIZE];
+    private static final int[] TOP_OFFSETS = new int[SHAPE_KIND_COUNT * ORIENTATION_COUNT];
+    private static final int[] LEFT_OFFSETS = new int[SHAPE_KIND_COUNT * ORIENTATION_COUNT];
+    private static final int[] WIDTHS = new int[SHAPE_KIND_COUNT * ORIENTATION_COUNT];
+    private static final int[] HEIGHTS = new int[SHAPE_KIND_COUNT * ORIENTATION_COUNT];
+    private static final int[] UNIQUE_ORIENTATION_COUNTS = new int[SHAPE_KIND_COUNT];
+
+    static {
+        register(Null.KIND, Null.OCCUPIED_CELL_POSITIONS);
+        register(LForm.KIND, LForm.OCCUPIED_CELL_POSITIONS);
+        register(LFormMirror.KIND, LFormMirror.OCCUPIED_CELL_POSITIONS);
+        register(Line.KIND, Line.OCCUPIED_CELL_POSITIONS);
+        register(Square.KIND, Square.OCCUPIED_CELL_POSITIONS);
+        register(TForm.KIND, TForm.OCCUPIED_CELL_POSITIONS);
+        register(Zigzag.KIND, Zigzag.OCCUPIED_CELL_POSITIONS);
+        register(ZigzagMirror.KIND, ZigzagMirror.OCCUPIED_CELL_POSITIONS);
+    }
+
+    private ShapeRotations() {
+        // Nothing
+    }
+
+    public static List<Position> getOccupiedCellPositions(int kind, int orientation) {
+        return CELL_POSITIONS.get(index(kind, orientation));
+    }
+
+    public static int getPackedCells(int kind, int orientation) {
+        return PACKED_CELLS[index(kind, orientation)];
+    }
+
+    public static int getCellCount(int kind, int orientation) {
+        return CELL_COUNTS[index(kind, orientation)];
+    }
+
+    public static int getCellRowOffset(int packedCells, int cellIndex) {
+        return packedCells >>> (cellIndex * 4 + 2) & 0b11;
+    }
+
+    public static int getCellColumnOffset(int packedCells, int cellIndex) {
+        return packedCells >>> (cellIndex * 4) & 0b11;
+    }
+
+    /**
+     * @param rowOffset row inside the shape's schema, in the [0, {@link #MAX_SCHEMA_SIZE}) range.
+     * @return the occupied columns of the given schema row, bit 0 being the leftmost occupied column of the whole shape.
+     */
+    public static int getRowMask(int kind, int orientation, int rowOffset) {
+        return ROW_MASKS[index(kind, orientation) * MAX_SCHEMA_SIZE + rowOffset];
+    }
+
+    /**
+     * @param columnOffset column of the shape, in the [0, {@link #getWidth(int, int)}) range, 0 being its leftmost occupied column.
+     * @return the row offset (inside the shape's schema) of the lowest cell of the given column.
+     */
+    public static int getBottomOffset(int kind, int orientation, int columnOffset) {
+        return BOTTOM_OFFSETS[index(kind, orientation) * MAX_SCHEMA_SIZE + columnOffset];
+    }
+
+    public static int getTopOffset(int kind, int orientation) {
+        return TOP_OFFSETS[index(kind, orientation)];
+    }
+
+    public static int getLeftOffset(int kind, int orientation) {
+        return LEFT_OFFSETS[index(kind, orientation)];
+    }
+
+    public static int getWidth(int kind, int orientation) {
+        return WIDTHS[index(kind, orientation)];
+    }
+
+    public static int getHeight(int kind, int orientation) {
+        return HEIGHTS[index(kind, orientation)];
+    }
+
+    /**
+     * Orientation values [0, n) cover all the distinct placements of the shape: the square has 1, the line and zigzags have 2, the rest have 4.
+     */
+    public static int getUniqueOrientationCount(int kind) {
+        return UNIQUE_ORIENTATION_COUNTS[kind];
+    }
+
+    private static int index(int kind, int orientation) {
+        return kind * ORIENTATION_COUNT + orientation;
+    }
+
+    private static void register(int kind, List<List<Position>> cellPositionsByOrientation) {
+        for (int orientation = 0; orientation < ORIENTATION_COUNT; orientation++) {
+            List<Position> cellPositions = cellPositionsByOrientation.get(orientation);
+            int index = index(kind, orientation);
+
+            int rowMin = MAX_SCHEMA_SIZE, rowMax = -1, columnMin = MAX_SCHEMA_SIZE, columnMax = -1;
+            int packedCells = 0;
+
+            for (int k = 0; k < cellPositions.size(); k++) {
+                Position pos = cellPositions.get(k);
+
+                rowMin = Math.min(rowMin, pos.getPosX());
+                rowMax = Math.max(rowMax, pos.getPosX());
+                columnMin = Math.min(columnMin, pos.getPosY());
+                columnMax = Math.max(columnMax, pos.getPosY());
+
+                packedCells |= (pos.getPosX() << 2 | pos.getPosY()) << (k * 4);
+            }
+
+            boolean isEmpty = cellPositions.isEmpty();
+
+            CELL_POSITIONS.set(index, Collections.unmodifiableList(cellPositions));
+            PACKED_CELLS[index] = packedCells;
+            CELL_COUNTS[index] = cellPositions.size();
+            TOP_OFFSETS[index] = isEmpty ? 0 : rowMin;
+            LEFT_OFFSETS[index] = isEmpty ? 0 : columnMin;
+            WIDTHS[index] = isEmpty ? 0 : columnMax - columnMin + 1;
+            HEIGHTS[index] = isEmpty ? 0 : rowMax - rowMin + 1;
+
+            for (Position pos : cellPositions) {
+                ROW_MASKS[index * MAX_SCHEMA_SIZE + pos.getPosX()] |= 1 << (pos.getPosY() - columnMin);
+
+                int bottomOffsetIndex = index * MAX_SCHEMA_SIZE + pos.getPosY() - columnMin;
+                BOTTOM_OFFSETS[bottomOffsetIndex] = Math.max(BOTTOM_OFFSETS[bottomOffsetIndex], pos.getPosX());
+            }
+        }
+
+        UNIQUE_ORIENTATION_COUNTS[kind] = computeUniqueOrientationCount(kind);
+    }
+
+    /**
+     * Finds the smallest period n (1, 2 or 4) such that orientations r and r + n always describe the same shape, once their bounding boxes are aligned.
+     */
+    private static int computeUniqueOrientationCount(int kind) {
+        for (int period = 1; period < ORIENTATION_COUNT; period *= 2) {
+            boolean isPeriodic = true;
+
+            for (int orientation = 0; orientation < ORIENTATION_COUNT && isPeriodic; orientation++) {
+                int otherOrientation = (orientation + period) % ORIENTATION_COUNT;
+
+                isPeriodic = getWidth(kind, orientation) == getWidth(kind, otherOrientation)
+                        && getHeight(kind, orientation) == getHeight(kind, otherOrientation);
+
+                for (int row = 0; row < getHeight(kind, orientation) && isPeriodic; row++) {
+                    isPeriodic = getRowMask(kind, orientation, getTopOffset(kind, orientation) + row)
+                            == getRowMask(kind, otherOrientation, getTopOffset(kind, otherOrientation) + row);
+                }
+            }
+
+            if (isPeriodic) {
+                return period;
+            }
+        }
+
+        return ORIENTATION_COUNT;
+    }
+}
@@ -1,9 +1,7 @@
 package edu.vbu.tetris_with_ai.core.shapes;
 
-import edu.vbu.tetris_with_ai.core.Orientation;
 import edu.vbu.tetris_with_ai.core.Position;
 
-import java.awt.*;
 import java.util.Arrays;
 import java.util.List;
 
@@ -17,34 +15,20 @@ import java.util.List;
  *     +---+---+
  * </pre>
  */
-public class Square extends Shape {
+abstract class Square {
 
-    private static final List<Position> occupiedCellPositions = Arrays.asList(
+    private static final List<Position> occupiedCellPositionsAnyOrient = Arrays.asList(
             new Position(0, 0), new Position(0, 1),     // first row
             new Position(1, 0), new Position(1, 1)      // second row
     );
 
-    public Square() {
-        super("Square", Orientation.UP);
-    }
-
-    @Override
-    public void rotateLeft() {
-        // Do nothing: the square needs no rotation.
-    }
-
-    @Override
-    public void rotateRight() {
-        // Do nothing: the square needs no rotation.
-    }
-
-    @Override
-    public List<Position> getOccupiedCellPositions() {
-        return occupiedCellPositions;
-    }
+    static final String NAME = "Square";
+    static final byte KIND = 4;
+    static final List<List<Position>> OCCUPIED_CELL_POSITIONS = Arrays.asList(
+            occupiedCellPositionsAnyOrient, occupiedCellPositionsAnyOrient, occupiedCellPositionsAnyOrient, occupiedCellPositionsAnyOrient
+    );
 
-    @Override
-    public Color getColour() {
-        return Color.yellow;
+    private Square() {
+        // Nothing
     }
 }
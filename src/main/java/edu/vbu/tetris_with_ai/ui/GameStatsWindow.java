@@ -3,6 +3,7 @@ package edu.vbu.tetris_with_ai.ui;
 import edu.vbu.tetris_with_ai.ai.Agent;
 import edu.vbu.tetris_with_ai.ai.GeneticAgentsMaster;
 import edu.vbu.tetris_with_ai.ai.GeneticAlgoAgent;
+import edu.vbu.tetris_with_ai.ai.features.FeatureExtractor;
 import edu.vbu.tetris_with_ai.core.TetrisGame;
 import edu.vbu.tetris_with_ai.utils.Constants;
 import edu.vbu.tetris_with_ai.utils.TetrisUtils;
@@ -28,10 +29,7 @@ public class GameStatsWindow extends JFrame {
 
     private JLabel overallScoreValue;
     private JLabel currentScoreValue;
-    private JLabel heightWeightValue;
-    private JLabel holesWeightValue;
-    private JLabel bumpWeightValue;
-    private JLabel linesWeightValue;
+    private JLabel[] weightValues;      // one per feature.
     private JLabel overallTimeValue;
     private JLabel generationValue;
 
@@ -74,32 +72,18 @@ public class GameStatsWindow extends JFrame {
 
         // Current best AI agent weights
 
-        JLabel heightWeightLabel = new JLabel("Height weight: ");
-        heightWeightValue = new JLabel("0.0");
-
-        JLabel holesWeightLabel = new JLabel("Holes weight: ");
-        holesWeightValue = new JLabel("0.0");
-
-        JLabel bumpWeightLabel = new JLabel("Bumpiness weight: ");
-        bumpWeightValue = new JLabel("0.0");
-
-        JLabel linesWeightLabel = new JLabel("Cleared lines weight: ");
-        linesWeightValue = new JLabel("0.0");
+        FeatureExtractor[] features = geneticAgentsMaster.getFeatures();
+        weightValues = new JLabel[features.length];
 
         JPanel currentWeightsGrid = new JPanel();
-        currentWeightsGrid.setLayout(new GridLayout(4, 2));
-
-        currentWeightsGrid.add(heightWeightLabel);
-        currentWeightsGrid.add(heightWeightValue);
+        currentWeightsGrid.setLayout(new GridLayout(features.length, 2));
 
-        currentWeightsGrid.add(holesWeightLabel);
-        currentWeightsGrid.add(holesWeightValue);
+        for (int k = 0; k < features.length; k++) {
+            weightValues[k] = new JLabel("0.0");
 
-        currentWeightsGrid.add(bumpWeightLabel);
-        currentWeightsGrid.add(bumpWeightValue);
-
-        currentWeightsGrid.add(linesWeightLabel);
-        currentWeightsGrid.add(linesWeightValue);
+            currentWeightsGrid.add(new JLabel("Weight for " + features[k].getName() + ": "));
+            currentWeightsGrid.add(weightValues[k]);
+        }
 
         JPanel currentWeightsGridRow = new JPanel();
         currentWeightsGridRow.add(currentWeightsGrid);
@@ -152,10 +136,11 @@ public class GameStatsWindow extends JFrame {
         geneticAgentsMaster.markTopGame(currentTopGame);
 
         GeneticAlgoAgent currentTopAgent = (GeneticAlgoAgent) gamesAndAgents.get(currentTopGame);
-        heightWeightValue.setText(String.valueOf(currentTopAgent.getWeightForHeight()));
-        holesWeightValue.setText(String.valueOf(currentTopAgent.getWeightForHoles()));
-        bumpWeightValue.setText(String.valueOf(currentTopAgent.getWeightForBumpiness()));
-        linesWeightValue.setText(String.valueOf(currentTopAgent.getWeightForLineClear()));
+        double[] weights = currentTopAgent.getWeights();
+
+        for (int k = 0; k < weights.length; k++) {
+            weightValues[k].setText(String.valueOf(weights[k]));
+        }
 
         long elapsedNanos = TetrisUtils.getTimePassedSinceAppStart();
         long elapsedHours = TimeUnit.NANOSECONDS.toHours(elapsedNanos);
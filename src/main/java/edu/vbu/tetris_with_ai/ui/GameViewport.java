@@ -30,10 +30,9 @@ public class GameViewport extends JPanel {
 
         setSize(Constants.WINDOW_WIDTH, Constants.WINDOW_HEIGHT);
         setDoubleBuffered(Constants.IS_DOUBLE_BUFFERED);
-        setBackground(Constants.BACKGROUND_COLOUR_LIGHT);
+        setBackground(UiColours.BACKGROUND_COLOUR_LIGHT);
 
         this.userInputMapped = mapUserInput;
-        this.tetrisGame.setPairedViewport(this);
 
         if (this.userInputMapped) {
             setUpUserInputMappings();
@@ -49,7 +48,7 @@ public class GameViewport extends JPanel {
         }
 
         this.tetrisGame = tetrisGame;
-        this.gridToRender = tetrisGame.getGameGrid();
+        this.gridToRender = new GameGrid(tetrisGame.getBoard(), Constants.IS_DOUBLE_BUFFERED);
 
         if (mainPanel != null) {
             mainPanel.add(gridToRender, BorderLayout.CENTER);
@@ -126,11 +125,41 @@ public class GameViewport extends JPanel {
     }
 
     private void setUpCallbacks() {
-        tetrisGame.setOnGameOverCallback(() -> updateGameStateLabel(true));
+        tetrisGame.setOnGameOverCallback(this::handleGameOver);
+        tetrisGame.setOnTopGameMarkChangedCallback(this::markAsTopGame);
+        tetrisGame.setOnResetCallback(this::handleGameReset);
+        tetrisGame.setOnBoardChangedCallback(() -> gridToRender.refresh());
         tetrisGame.setOnSpawnPieceCallback(this::updateUpcomingPieceLabel);
         tetrisGame.setOnScoreIncreasedCallback(this::updateLevelAndScoreLabel);
     }
 
+    private void handleGameOver(TetrisGame.EndGameReason reason) {
+        if (reason == TetrisGame.EndGameReason.ERROR) {
+            setBackground(Color.red);
+        } else if (reason == TetrisGame.EndGameReason.FORCED_BY_TIMEOUT) {
+            setBackground(Color.orange);
+        }
+
+        updateGameStateLabel(true);
+    }
+
+    private void markAsTopGame(boolean isTop) {
+        if (isTop) {
+            setBackground(Color.green);
+        } else {
+            setBackground(UiColours.BACKGROUND_COLOUR_LIGHT);
+        }
+    }
+
+    private void handleGameReset(String newGameLabel) {
+        resetDisplayedData(newGameLabel);
+
+        // Clear the colour of the previous game's ending, but keep the top game marked.
+        if (getBackground() != Color.green) {
+            setBackground(UiColours.BACKGROUND_COLOUR_LIGHT);
+        }
+    }
+
     private JPanel createStatsPanel(Color backgroundColour) {
         JPanel statsPanel = new JPanel(true);
         statsPanel.setBackground(backgroundColour);
@@ -0,0 +1,18 @@
+package edu.vbu.tetris_with_ai.ui;
+
+import java.awt.*;
+
+/**
+ * Colours of the windows, kept apart from {@link edu.vbu.tetris_with_ai.utils.Constants} so that headless runs never load AWT.
+ */
+public abstract class UiColours {
+
+    // Always keep the background and empty cells' colour values different!
+    public static final Color BACKGROUND_COLOUR = Color.black;
+    public static final Color EMPTY_CELL_COLOUR = Color.darkGray;
+    public static final Color BACKGROUND_COLOUR_LIGHT = Color.lightGray;
+
+    private UiColours() {
+        // Nothing
+    }
+}
@@ -1,7 +1,5 @@
 package edu.vbu.tetris_with_ai.utils;
 
-import java.awt.*;
-
 public abstract class Constants {
 
     public Constants() {
@@ -31,11 +29,6 @@ public abstract class Constants {
 
     public static final int CELL_SIZE = 1;     // horizontally, as well as vertically, measured in pixels.
 
-    // Always keep the background and empty cells' colour values different!
-    public static final Color BACKGROUND_COLOUR = Color.black;
-    public static final Color EMPTY_CELL_COLOUR = Color.darkGray;
-    public static final Color BACKGROUND_COLOUR_LIGHT = Color.lightGray;
-
     public static final int  WINDOW_WIDTH = 300 + CELL_COUNT_HORIZONTALLY * CELL_SIZE;
     public static final int WINDOW_HEIGHT = 200 +   CELL_COUNT_VERTICALLY * CELL_SIZE;
 
@@ -53,9 +46,41 @@ public abstract class Constants {
 
     public static final long AI_WAIT_TIME_MILLIS_BEFORE_NEXT_MOVE = 5L;
 
+    // Games are played by a fixed pool of worker threads; each worker plays a slice of steps of a game before switching to another one.
+    public static final int AI_WORKER_THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+    public static final int AI_STEPS_PER_WORKER_SLICE = 64;
+
     // The higher the value (percentage), the higher the chance for a gene of a child agent to mutate.
     public static final float AI_GENES_MUTATION_RATE = 10.0f;
 
-    // Games are forcefully ended after the timeout.
-    public static final int AI_GAME_TIME_LIMIT_SECONDS = 120;
+    // Initial standard deviation of every weight sampled by the cross-entropy method and CMA-ES (the initial mean being 0).
+    public static final double AI_OPTIMIZER_INITIAL_DEVIATION = 0.5;
+
+    // The cross-entropy method refits its distributions to this fraction of each batch, then adds a noise variance which decreases to 0 over the given generations.
+    public static final double AI_CEM_ELITE_FRACTION = 0.1;
+    public static final double AI_CEM_NOISE_VARIANCE = 0.0125;
+    public static final int AI_CEM_NOISE_DECAY_GENERATIONS = 50;
+
+    // Games are forcefully ended once they reach either limit (measured in game loop cycles and locked pieces, not in real time; 0 means no limit).
+    public static final long AI_GAME_TICK_LIMIT = 24_000L;
+    public static final int AI_GAME_PIECE_LIMIT = 0;
+
+    // Every agent of a generation plays the same pre-generated piece sequences, its fitness being its mean score over them.
+    public static final int AI_EVALUATION_SEQUENCE_COUNT = 5;
+    public static final int AI_EVALUATION_SEQUENCE_MAX_LENGTH = 1 << 16;      // sequences start over once exhausted.
+    public static final int AI_EVALUATION_SEQUENCES_KEPT_PER_GENERATION = 0;      // replayed by the next generation, for more fitness cache hits (0 renews them all).
+
+    // When generations are raced, the piece budget is multiplied by this factor from one tier to the next, while the number of agents is divided by it.
+    public static final int AI_RACING_BUDGET_GROWTH_FACTOR = 3;
+
+    // Game scores remembered per agent weights (rounded to the quantum), piece sequence and game limits, to avoid replaying identical games.
+    public static final int AI_FITNESS_CACHE_CAPACITY = 1 << 16;
+    public static final double AI_FITNESS_CACHE_WEIGHT_QUANTUM = 1e-4;
+
+    // Number of search results shared by all the agents (must be a power of two, each entry takes 16 bytes).
+    public static final int AI_TRANSPOSITION_TABLE_CAPACITY = 1 << 18;
+
+    // Agents which look one piece ahead only combine the best placements of the current piece (0 meaning all of them) with every placement of the upcoming one.
+    public static final int AI_LOOKAHEAD_BEAM_WIDTH = 12;
+    public static final long AI_LOOKAHEAD_DECISION_BUDGET_NANOS = 1_000_000L;     // decisions taking longer are counted, see LookaheadAgent.
 }
@@ -15,4 +15,34 @@ public abstract class MathUtils {
             return val;
         }
     }
+
+    public static double mean(double[] values) {
+        double sum = 0.0;
+
+        for (double value : values) {
+            sum += value;
+        }
+
+        return sum / values.length;
+    }
+
+    /**
+     * @return half the width of the 95% confidence interval of the mean of the given values (normal approximation), 0 for a single value.
+     */
+    public static double confidenceHalfWidth(double[] values) {
+        if (values.length < 2) {
+            return 0.0;
+        }
+
+        double mean = mean(values);
+        double squaredDeviationSum = 0.0;
+
+        for (double value : values) {
+            squaredDeviationSum += (value - mean) * (value - mean);
+        }
+
+        double standardDeviation = Math.sqrt(squaredDeviationSum / (values.length - 1));
+
+        return 1.96 * standardDeviation / Math.sqrt(values.length);
+    }
 }
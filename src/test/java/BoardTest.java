@@ -0,0 +1,343 @@
+import edu.vbu.tetris_with_ai.core.Board;
+import edu.vbu.tetris_with_ai.core.shapes.*;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class BoardTest {
+
+    @Test
+    public void testPieceDropsToTheFloor() {
+        Board board = new Board(10, 20);
+        board.setCurrentFallingPiece(ShapeKind.SQUARE);
+
+        Assert.assertEquals("The drop distance is not right", 18, board.instantDropPiece());
+        Assert.assertTrue("The piece should be resting on the floor", board.isPieceCollidingBottom());
+
+        board.setCurrentFallingPiece(ShapeKind.SQUARE);
+
+        Assert.assertTrue("The previous piece should be locked", board.isCellOccupied(19, 4));
+        Assert.assertTrue("The previous piece should be locked", board.isCellOccupied(18, 5));
+        Assert.assertEquals("The cell kind is not right", ShapeKind.SQUARE.getId(), board.getCellKind(19, 4));
+        Assert.assertEquals("The drop distance is not right", 16, board.instantDropPiece());
+    }
+
+    @Test
+    public void testPieceStopsAtTheWalls() {
+        Board board = new Board(10, 20);
+        board.setCurrentFallingPiece(ShapeKind.LINE);
+
+        for (int k = 0; k < 10; k++) {
+            board.movePieceLeftOneColumn();
+        }
+
+        Assert.assertEquals("The piece should stop at the left wall", 0, board.getFallingPieceColumnIndex());
+
+        for (int k = 0; k < 10; k++) {
+            board.movePieceRightOneColumn();
+        }
+
+        Assert.assertEquals("The piece should stop at the right wall", 6, board.getFallingPieceColumnIndex());
+    }
+
+    @Test
+    public void testCompletedLineIsCleared() {
+        Board board = new Board(4, 6);
+
+        board.setCurrentFallingPiece(ShapeKind.SQUARE);
+        board.movePieceLeftOneColumn();
+        board.instantDropPiece();
+        board.setCurrentFallingPiece(ShapeKind.SQUARE);
+        board.movePieceRightOneColumn();
+        board.instantDropPiece();
+
+        Assert.assertEquals("Both bottom rows should be complete", 2, board.getCompleteRowCount());
+        Assert.assertEquals("Both bottom rows should be cleared", 2, board.tryClearCompletedHorizLines());
+
+        for (int i = 0; i < board.getRowCount(); i++) {
+            for (int j = 0; j < board.getColumnCount(); j++) {
+                Assert.assertFalse("The board should be empty", board.isCellOccupied(i, j));
+            }
+        }
+    }
+
+    @Test
+    public void testRowsAboveClearedLinesMoveDown() {
+        Board board = new Board(4, 6);
+
+        board.setCurrentFallingPiece(ShapeKind.SQUARE);
+        board.movePieceLeftOneColumn();
+        board.instantDropPiece();
+        board.setCurrentFallingPiece(ShapeKind.SQUARE);
+        board.movePieceLeftOneColumn();
+        board.instantDropPiece();
+        board.setCurrentFallingPiece(ShapeKind.SQUARE);
+        board.movePieceRightOneColumn();
+        board.instantDropPiece();
+
+        Assert.assertEquals("Both bottom rows should be cleared", 2, board.tryClearCompletedHorizLines());
+        Assert.assertTrue("The upper square should have moved down", board.isCellOccupied(4, 0));
+        Assert.assertTrue("The upper square should have moved down", board.isCellOccupied(5, 1));
+        Assert.assertFalse("The upper square should have moved down", board.isCellOccupied(3, 0));
+        Assert.assertFalse("The cleared piece should be gone", board.isCellOccupied(5, 2));
+        Assert.assertEquals("The cell kind is not right", ShapeKind.SQUARE.getId(), board.getCellKind(5, 0));
+        Assert.assertEquals("The column height is not right", 2, board.getColumnHeight(0));
+        Assert.assertEquals("The column height is not right", 0, board.getColumnHeight(2));
+    }
+
+    @Test
+    public void testSimulatedPlacementIsReverted() {
+        Board board = new Board(10, 20);
+        board.setCurrentFallingPiece(ShapeKind.SQUARE);
+        board.instantDropPiece();
+        board.setCurrentFallingPiece(ShapeKind.NULL);
+
+        Board scratchBoard = new Board(10, 20);
+        scratchBoard.copyFrom(board);
+
+        scratchBoard.place(ShapeKind.LINE.getId(), 0, 3);
+
+        Assert.assertEquals("The landing height is not right", 3.0, scratchBoard.getLastLandingHeight(), 0.0);
+        Assert.assertTrue("The placed piece should be on the board", scratchBoard.isCellOccupied(17, 6));
+
+        scratchBoard.undo();
+
+        for (int i = 0; i < board.getRowCount(); i++) {
+            for (int j = 0; j < board.getColumnCount(); j++) {
+                Assert.assertEquals("The placement was not reverted", board.isCellOccupied(i, j), scratchBoard.isCellOccupied(i, j));
+            }
+        }
+    }
+
+    @Test
+    public void testPlacementIntoTheStackIsRejected() {
+        Board board = new Board(4, 4);
+        int square = ShapeKind.SQUARE.getId();
+
+        // Two squares fill the left half of the board up to the top row.
+        board.place(square, 0, 0);
+        board.place(square, 0, 0);
+
+        Assert.assertEquals("The overlapping piece should not land", -1, board.place(square, 0, 0, 0));
+        Assert.assertEquals("The overlapping piece should not land", -1, board.place(square, 0, 0, 1));
+        Assert.assertEquals("The undo depth is not right", 2, board.getUndoDepth());
+
+        Assert.assertEquals("Both bottom rows should be cleared", 2, board.place(square, 0, 0, 2));
+        board.undo();
+
+        for (int i = 0; i < board.getRowCount(); i++) {
+            for (int j = 0; j < board.getColumnCount(); j++) {
+                Assert.assertEquals("The locked cells should be left untouched", j < 2, board.isCellOccupied(i, j));
+            }
+        }
+
+        Assert.assertEquals("The aggregate height is not right", 8, board.getAggregateHeight());
+    }
+
+    @Test
+    public void testColumnHeightsFollowPlacements() {
+        Board board = new Board(10, 20);
+        board.setCurrentFallingPiece(ShapeKind.SQUARE);
+        board.instantDropPiece();
+        board.setCurrentFallingPiece(ShapeKind.NULL);
+
+        Assert.assertEquals("The column height is not right", 2, board.getColumnHeight(4));
+        Assert.assertEquals("The column height is not right", 0, board.getColumnHeight(3));
+
+        // The T form, pointing down, lands with its middle cell on top of the square.
+        board.place(ShapeKind.T_FORM.getId(), 2, 3);
+
+        Assert.assertEquals("The landing height is not right", 3.5, board.getLastLandingHeight(), 0.0);
+        Assert.assertEquals("The column height is not right", 4, board.getColumnHeight(3));
+        Assert.assertEquals("The column height is not right", 4, board.getColumnHeight(4));
+
+        board.undo();
+
+        Assert.assertEquals("The column height is not right", 2, board.getColumnHeight(4));
+        Assert.assertEquals("The column height is not right", 0, board.getColumnHeight(3));
+    }
+
+    @Test
+    public void testPlacementFeaturesAreTracked() {
+        Board board = new Board(5, 6);
+
+        board.place(ShapeKind.LINE.getId(), 0, 0);
+
+        Assert.assertEquals("The near-complete row count is not right", 1, board.getNearCompleteRowCount());
+        Assert.assertEquals("The bumpiness is not right", 1, board.getBumpiness());
+
+        // The T form, pointing down, hangs over the end of the line and leaves 3 holes underneath.
+        board.place(ShapeKind.T_FORM.getId(), 2, 2);
+
+        Assert.assertEquals("The landing height is not right", 2.5, board.getLastLandingHeight(), 0.0);
+        Assert.assertEquals("The aggregate height is not right", 11, board.getAggregateHeight());
+        Assert.assertEquals("The hole count is not right", 3, board.getHoleCount());
+        Assert.assertEquals("The bumpiness is not right", 2, board.getBumpiness());
+        Assert.assertEquals("The near-complete row count is not right", 1, board.getNearCompleteRowCount());
+
+        board.undo();
+
+        Assert.assertEquals("The aggregate height is not right", 4, board.getAggregateHeight());
+        Assert.assertEquals("The hole count is not right", 0, board.getHoleCount());
+        Assert.assertEquals("The bumpiness is not right", 1, board.getBumpiness());
+    }
+
+    @Test
+    public void testBitboardFeaturesAreComputed() {
+        Board board = new Board(5, 6);
+
+        board.place(ShapeKind.LINE.getId(), 0, 0);
+
+        Assert.assertEquals("The well sum is not right", 1, board.getWellSum());
+
+        // Same board as above: the T form covers the last column, and one cell left by the line.
+        board.place(ShapeKind.T_FORM.getId(), 2, 2);
+
+        Assert.assertEquals("The row transition count is not right", 8, board.getRowTransitionCount());
+        Assert.assertEquals("The column transition count is not right", 9, board.getColumnTransitionCount());
+        Assert.assertEquals("The well sum is not right", 0, board.getWellSum());
+        Assert.assertEquals("The hole depth sum is not right", 3, board.getHoleDepthSum());
+        Assert.assertEquals("The landing height is not right", 2.5, board.getLastLandingHeight(), 0.0);
+        Assert.assertEquals("The eroded piece cell count is not right", 0, board.getLastErodedPieceCellCount());
+
+        Board otherBoard = new Board(4, 6);
+        otherBoard.place(ShapeKind.SQUARE.getId(), 0, 0);
+        otherBoard.place(ShapeKind.SQUARE.getId(), 0, 2);
+
+        Assert.assertEquals("The eroded piece cell count is not right", 8, otherBoard.getLastErodedPieceCellCount());
+        Assert.assertEquals("The row transition count is not right", 0, otherBoard.getRowTransitionCount());
+    }
+
+    @Test
+    public void testPlacementWithClearedLinesIsUndone() {
+        Board board = new Board(4, 6);
+        int square = ShapeKind.SQUARE.getId();
+
+        Assert.assertEquals("No line should be cleared", 0, board.place(square, 0, 0));
+        Assert.assertEquals("No line should be cleared", 0, board.place(square, 0, 0));
+        Assert.assertEquals("Both bottom rows should be cleared", 2, board.place(square, 0, 2));
+        Assert.assertTrue("The upper square should have moved down", board.isCellOccupied(5, 1));
+        Assert.assertEquals("The aggregate height is not right", 4, board.getAggregateHeight());
+
+        board.undo();
+
+        Assert.assertEquals("The undo depth is not right", 2, board.getUndoDepth());
+        Assert.assertTrue("The first square should be back", board.isCellOccupied(5, 0));
+        Assert.assertTrue("The second square should be back", board.isCellOccupied(2, 1));
+        Assert.assertFalse("The third square should be gone", board.isCellOccupied(5, 2));
+        Assert.assertEquals("The aggregate height is not right", 8, board.getAggregateHeight());
+
+        board.undo();
+        board.undo();
+
+        Assert.assertEquals("The board should be empty", 0, board.getAggregateHeight());
+        Assert.assertEquals("The cell kind is not right", 0, board.getCellKind(5, 0));
+    }
+
+    @Test
+    public void testLastPlacementFeaturesAreUndone() {
+        Board board = new Board(4, 6);
+        int square = ShapeKind.SQUARE.getId();
+
+        board.place(square, 0, 0);
+        board.place(square, 0, 0);
+
+        Assert.assertEquals("The landing height is not right", 3.5, board.getLastLandingHeight(), 0.0);
+
+        board.place(square, 0, 2);
+
+        Assert.assertEquals("The landing height is not right", 1.5, board.getLastLandingHeight(), 0.0);
+        Assert.assertEquals("The completed row count is not right", 2, board.getLastCompletedRowCount());
+        Assert.assertEquals("The eroded piece cell count is not right", 8, board.getLastErodedPieceCellCount());
+
+        board.undo();
+
+        Assert.assertEquals("The landing height is not right", 3.5, board.getLastLandingHeight(), 0.0);
+        Assert.assertEquals("The completed row count is not right", 0, board.getLastCompletedRowCount());
+        Assert.assertEquals("The eroded piece cell count is not right", 0, board.getLastErodedPieceCellCount());
+    }
+
+    @Test
+    public void testColumnQueriesFollowTheCells() {
+        Board board = new Board(5, 8);
+
+        // A T form on top of a line leaves holes underneath.
+        board.place(ShapeKind.LINE.getId(), 0, 0);
+        board.place(ShapeKind.T_FORM.getId(), 2, 2);
+        assertColumnQueriesMatchCells(board);
+
+        board.undo();
+        assertColumnQueriesMatchCells(board);
+
+        // An upside down T form next to a square completes the row of its flat side, which gets cleared from under the square.
+        board.reset();
+        board.place(ShapeKind.SQUARE.getId(), 0, 0);
+
+        Assert.assertEquals("The T form's row should be cleared", 1, board.place(ShapeKind.T_FORM.getId(), 2, 2));
+        Assert.assertEquals("The column height is not right", 1, board.getColumnHeight(3));
+        assertColumnQueriesMatchCells(board);
+
+        board.undo();
+
+        Assert.assertEquals("The column height is not right", 0, board.getColumnHeight(3));
+        assertColumnQueriesMatchCells(board);
+    }
+
+    @Test
+    public void testPlacementOverTheTopIsRejected() {
+        Board board = new Board(3, 3);
+        int square = ShapeKind.SQUARE.getId();
+
+        Assert.assertEquals("No line should be cleared", 0, board.place(square, 0, 0));
+        Assert.assertEquals("The second square should not fit", -1, board.place(square, 0, 0));
+        Assert.assertEquals("The undo depth is not right", 1, board.getUndoDepth());
+        Assert.assertEquals("The board should be left unchanged", 4, board.getAggregateHeight());
+    }
+
+    @Test
+    public void testZobristKeyOnlyDependsOnTheCells() {
+        Board board = new Board(10, 20);
+        Board otherBoard = new Board(10, 20);
+        long emptyBoardKey = board.getZobristKey();
+
+        board.place(ShapeKind.SQUARE.getId(), 0, 0);
+        board.place(ShapeKind.LINE.getId(), 0, 4);
+        otherBoard.place(ShapeKind.LINE.getId(), 0, 4);
+        otherBoard.place(ShapeKind.SQUARE.getId(), 0, 0);
+
+        Assert.assertEquals("The placement order should not matter", board.getZobristKey(), otherBoard.getZobristKey());
+        Assert.assertNotEquals("The pieces should be part of the key", board.getZobristKey(1, 2), board.getZobristKey(2, 1));
+
+        board.undo();
+        board.undo();
+
+        Assert.assertEquals("The key was not reverted", emptyBoardKey, board.getZobristKey());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSpawningOverOccupiedCellsFails() {
+        Board board = new Board(4, 2);
+
+        board.setCurrentFallingPiece(ShapeKind.SQUARE);
+        board.setCurrentFallingPiece(ShapeKind.SQUARE);
+    }
+
+    private static void assertColumnQueriesMatchCells(Board board) {
+        for (int column = 0; column < board.getColumnCount(); column++) {
+            int height = 0;
+            int occupiedCellCount = 0;
+
+            for (int row = board.getRowCount() - 1; row >= 0; row--) {
+                if (board.isCellOccupied(row, column)) {
+                    height = board.getRowCount() - row;
+                    occupiedCellCount++;
+                }
+            }
+
+            Assert.assertEquals("The height of column " + column + " is not right", height, board.getColumnHeight(column));
+            Assert.assertEquals("The hole count of column " + column + " is not right", height - occupiedCellCount, board.getColumnHoleCount(column));
+        }
+    }
+}
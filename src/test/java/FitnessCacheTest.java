@@ -0,0 +1,27 @@
+import edu.vbu.tetris_with_ai.ai.FitnessCache;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class FitnessCacheTest {
+
+    @Test
+    public void testLeastRecentlyUsedScoreIsEvicted() {
+        FitnessCache cache = new FitnessCache(2);
+
+        cache.put(1L, 10.0);
+        cache.put(2L, 20.0);
+
+        Assert.assertEquals("The score is not right", 10.0, cache.get(1L), 0.0);
+
+        cache.put(3L, 30.0);
+
+        Assert.assertNull("The least recently used score should be evicted", cache.get(2L));
+        Assert.assertEquals("The score is not right", 10.0, cache.get(1L), 0.0);
+        Assert.assertEquals("The score is not right", 30.0, cache.get(3L), 0.0);
+        Assert.assertEquals("The hit count is not right", 3, cache.getHitCount());
+        Assert.assertEquals("The miss count is not right", 1, cache.getMissCount());
+    }
+}
@@ -0,0 +1,149 @@
+import edu.vbu.tetris_with_ai.ai.GeneticAlgoAgent;
+import edu.vbu.tetris_with_ai.ai.LookaheadAgent;
+import edu.vbu.tetris_with_ai.ai.features.BoardFeature;
+import edu.vbu.tetris_with_ai.ai.features.FeatureExtractor;
+import edu.vbu.tetris_with_ai.core.Board;
+import edu.vbu.tetris_with_ai.core.Placement;
+import edu.vbu.tetris_with_ai.core.TetrisGame;
+import edu.vbu.tetris_with_ai.core.shapes.PieceGenerator;
+import edu.vbu.tetris_with_ai.core.shapes.ShapeKind;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.ForkJoinPool;
+
+@RunWith(JUnit4.class)
+public class LookaheadAgentTest {
+
+    @Test
+    public void testUpcomingPieceIsKnown() {
+        byte[] sequence = {ShapeKind.SQUARE.getId(), ShapeKind.LINE.getId(), ShapeKind.T_FORM.getId()};
+        TetrisGame game = new TetrisGame(0, new PieceGenerator(sequence));
+
+        Assert.assertEquals("No piece should be known before the game starts", ShapeKind.NULL, game.getUpcomingPieceKind());
+
+        game.startGame(0, false);
+
+        Assert.assertEquals("The falling piece is not right", ShapeKind.SQUARE, game.getBoard().getFallingPieceKind());
+        Assert.assertEquals("The upcoming piece is not right", ShapeKind.LINE, game.getUpcomingPieceKind());
+    }
+
+    @Test
+    public void testSearchDoesNotDependOnThePool() {
+        FeatureExtractor[] features = BoardFeature.getAllFeatures();
+        double[] weights = {0.1, 0.8, 0.1, 0.2, 0.45, 0.34, 0.32, 0.93, 0.34, 0.1};
+        ForkJoinPool pool = new ForkJoinPool(3);
+
+        LookaheadAgent sequentialAgent = new LookaheadAgent(1, features, weights, null);
+        LookaheadAgent parallelAgent = new LookaheadAgent(2, features, weights, pool);
+        TetrisGame game = new TetrisGame(0, new PieceGenerator(7L, PieceGenerator.Mode.SEVEN_BAG));
+        game.startGame(0, false);
+
+        long previousNodeCount = LookaheadAgent.getNodeCount();
+
+        try {
+            for (int k = 0; k < 30; k++) {
+                // Both agents have the same weights, so they would share their results through the transposition table otherwise.
+                GeneticAlgoAgent.getTranspositionTable().clear();
+                Placement sequentialPlacement = sequentialAgent.getNextPlacement(game);
+
+                GeneticAlgoAgent.getTranspositionTable().clear();
+                Placement parallelPlacement = parallelAgent.getNextPlacement(game);
+
+                Assert.assertEquals("The orientation is not right", sequentialPlacement.getOrientation(), parallelPlacement.getOrientation());
+                Assert.assertEquals("The column is not right", sequentialPlacement.getColumnIndex(), parallelPlacement.getColumnIndex());
+
+                game.performPlacement(sequentialPlacement);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        Assert.assertFalse("The game should still be running", game.isGameOver());
+        Assert.assertTrue("The evaluated boards should be counted", LookaheadAgent.getNodeCount() > previousNodeCount);
+    }
+
+    @Test
+    public void testFirstPlyClearsItsLines() {
+        byte[] sequence = {ShapeKind.LINE.getId(), ShapeKind.SQUARE.getId()};
+        TetrisGame game = new TetrisGame(0, new PieceGenerator(sequence));
+        game.startGame(0, false);
+
+        // The 4 bottom rows are complete, except for their last column.
+        Board board = game.getBoard();
+        int line = ShapeKind.LINE.getId();
+
+        for (int j = 0; j < board.getColumnCount() - 1; j++) {
+            board.place(line, 1, j - 2);
+        }
+
+        boolean[][] cells = getCells(board);
+        Placement placement = newAgent().getNextPlacement(game);
+
+        Assert.assertEquals("The orientation is not right", 1, placement.getOrientation());
+        Assert.assertEquals("The column is not right", board.getColumnCount() - 3, placement.getColumnIndex());
+        assertCellsEqual(cells, board);
+
+        game.performPlacement(placement);
+
+        Assert.assertEquals("The 4 rows should be cleared", 0, board.getAggregateHeight());
+    }
+
+    @Test
+    public void testOverlappingPlacementsAreSkipped() {
+        byte[] sequence = {ShapeKind.SQUARE.getId(), ShapeKind.LINE.getId()};
+        TetrisGame game = new TetrisGame(0, new PieceGenerator(sequence));
+        game.startGame(0, false);
+
+        // The 6 leftmost columns are filled up to the top row, next to where the pieces spawn.
+        Board board = game.getBoard();
+        int line = ShapeKind.LINE.getId();
+
+        for (int j = 0; j < 6; j++) {
+            while (board.place(line, 1, j - 2) >= 0) {
+                // Stack another line.
+            }
+        }
+
+        Assert.assertEquals("The columns should be full", board.getRowCount(), board.getColumnHeight(5));
+
+        boolean[][] cells = getCells(board);
+        Placement placement = newAgent().getNextPlacement(game);
+
+        Assert.assertTrue("The piece should not go over the full columns", placement.getColumnIndex() >= 6);
+        assertCellsEqual(cells, board);
+
+        game.performPlacement(placement);
+
+        Assert.assertFalse("The game should still be running", game.isGameOver());
+        Assert.assertEquals("The full columns should be left untouched", board.getRowCount(), board.getColumnHeight(0));
+    }
+
+    private static LookaheadAgent newAgent() {
+        GeneticAlgoAgent.getTranspositionTable().clear();
+
+        return new LookaheadAgent(1, BoardFeature.getDefaultFeatures(), new double[] {0.51, 0.36, 0.18, 0.76}, null);
+    }
+
+    private static boolean[][] getCells(Board board) {
+        boolean[][] cells = new boolean[board.getRowCount()][board.getColumnCount()];
+
+        for (int i = 0; i < board.getRowCount(); i++) {
+            for (int j = 0; j < board.getColumnCount(); j++) {
+                cells[i][j] = board.isCellOccupied(i, j);
+            }
+        }
+
+        return cells;
+    }
+
+    private static void assertCellsEqual(boolean[][] expectedCells, Board board) {
+        for (int i = 0; i < board.getRowCount(); i++) {
+            for (int j = 0; j < board.getColumnCount(); j++) {
+                Assert.assertEquals("The searched board was changed", expectedCells[i][j], board.isCellOccupied(i, j));
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import edu.vbu.tetris_with_ai.ai.optimizers.CmaEsOptimizer;
+import edu.vbu.tetris_with_ai.ai.optimizers.CrossEntropyOptimizer;
+import edu.vbu.tetris_with_ai.ai.optimizers.GeneticOptimizer;
+import edu.vbu.tetris_with_ai.ai.optimizers.Optimizer;
+import edu.vbu.tetris_with_ai.ai.optimizers.Population;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class OptimizerTest {
+
+    private static final double[] OPTIMUM = { 0.3, -0.2, 0.5, 0.1 };
+
+    @Test
+    public void testGeneticAlgorithmApproachesTheOptimum() {
+        Assert.assertEquals("The best fitness is not right", 0.0, getBestFitness(new GeneticOptimizer(OPTIMUM.length, 20, false, 1L), 20, 100), 0.01);
+    }
+
+    @Test
+    public void testCrossEntropyMethodApproachesTheOptimum() {
+        Assert.assertEquals("The best fitness is not right", 0.0, getBestFitness(new CrossEntropyOptimizer(OPTIMUM.length, 20, 1L), 20, 100), 0.001);
+    }
+
+    @Test
+    public void testCmaEsApproachesTheOptimum() {
+        Assert.assertEquals("The best fitness is not right", 0.0, getBestFitness(new CmaEsOptimizer(OPTIMUM.length, 20, 1L), 20, 100), 0.001);
+    }
+
+    @Test
+    public void testPopulationKeepsTheBestGenomesSorted() {
+        Population population = new Population(2, 3);
+
+        population.insert(new double[] { 1, 1 }, 1.0);
+        population.insert(new double[] { 3, 3 }, 3.0);
+        population.insert(new double[] { 0, 0 }, 0.0);
+        population.insert(new double[] { 2, 2 }, 2.0);
+
+        Assert.assertTrue("The population should be full", population.isFull());
+        Assert.assertArrayEquals("The best genome is not right", new double[] { 3, 3 }, population.copyGenome(0), 0.0);
+        Assert.assertArrayEquals("The second genome is not right", new double[] { 2, 2 }, population.copyGenome(1), 0.0);
+        Assert.assertEquals("The worst fitness is not right", 1.0, population.getFitness(2), 0.0);
+        Assert.assertEquals("The genomes should be stored back to back", 2.0, population.getGenomes()[population.getOffset(1)], 0.0);
+    }
+
+    private static double getBestFitness(Optimizer optimizer, int batchSize, int generationCount) {
+        double bestFitness = Double.NEGATIVE_INFINITY;
+
+        for (int generation = 0; generation < generationCount; generation++) {
+            double[][] genomes = new double[batchSize][];
+
+            for (int k = 0; k < batchSize; k++) {
+                genomes[k] = optimizer.ask();
+            }
+            for (double[] genome : genomes) {
+                double fitness = getFitness(genome);
+
+                optimizer.tell(genome, fitness);
+                bestFitness = Math.max(bestFitness, fitness);
+            }
+        }
+
+        return bestFitness;
+    }
+
+    // Negated squared distance to the optimum.
+    private static double getFitness(double[] genome) {
+        double fitness = 0.0;
+
+        for (int k = 0; k < genome.length; k++) {
+            fitness -= (genome[k] - OPTIMUM[k]) * (genome[k] - OPTIMUM[k]);
+        }
+
+        return fitness;
+    }
+}
@@ -0,0 +1,51 @@
+import edu.vbu.tetris_with_ai.core.shapes.PieceGenerator;
+import edu.vbu.tetris_with_ai.core.shapes.ShapeKind;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+@RunWith(JUnit4.class)
+public class PieceGeneratorTest {
+
+    @Test
+    public void testPieceGeneratorIsReproducible() {
+        PieceGenerator generator1 = new PieceGenerator(42L, PieceGenerator.Mode.UNIFORM);
+        PieceGenerator generator2 = new PieceGenerator(42L, PieceGenerator.Mode.UNIFORM);
+
+        for (int k = 0; k < 100; k++) {
+            Assert.assertEquals("The piece sequences should be the same", generator1.next(), generator2.next());
+        }
+    }
+
+    @Test
+    public void testSevenBagDealsEveryKindOnce() {
+        PieceGenerator generator = new PieceGenerator(42L, PieceGenerator.Mode.SEVEN_BAG);
+
+        for (int bag = 0; bag < 10; bag++) {
+            Set<ShapeKind> dealtKinds = EnumSet.noneOf(ShapeKind.class);
+
+            for (int k = 0; k < 7; k++) {
+                dealtKinds.add(generator.next());
+            }
+
+            Assert.assertEquals("The bag is not right", EnumSet.range(ShapeKind.L_FORM, ShapeKind.ZIGZAG_MIRROR), dealtKinds);
+        }
+    }
+
+    @Test
+    public void testPieceSequenceIsReplayed() {
+        byte[] sequence = new PieceGenerator(42L, PieceGenerator.Mode.UNIFORM).newSequence(10);
+        PieceGenerator generator1 = new PieceGenerator(42L, PieceGenerator.Mode.UNIFORM);
+        PieceGenerator replayingGenerator = new PieceGenerator(sequence);
+
+        for (int k = 0; k < 10; k++) {
+            Assert.assertEquals("The replayed piece is not right", generator1.next(), replayingGenerator.next());
+        }
+
+        Assert.assertEquals("The sequence should start over", ShapeKind.fromId(sequence[0]), replayingGenerator.next());
+    }
+}
@@ -1,4 +1,6 @@
-import edu.vbu.tetris_with_ai.core.shapes.*;
+import edu.vbu.tetris_with_ai.core.Orientation;
+import edu.vbu.tetris_with_ai.core.shapes.ShapeKind;
+import edu.vbu.tetris_with_ai.core.shapes.ShapeRotations;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -9,81 +11,110 @@ public class ShapeTest {
 
     @Test
     public void testLineShapeGetHorizontalLength() {
-        Shape line = new Line();
+        int kind = ShapeKind.LINE.getId();
+        Orientation orientation = Orientation.UP;
 
-        Assert.assertEquals("The length is not right", 4, line.getHorizontalLength());
+        Assert.assertEquals("The length is not right", 4, ShapeRotations.getWidth(kind, orientation.getValue()));
 
-        line.rotateLeft();
+        orientation = orientation.previous();
 
-        Assert.assertEquals("The length is not right", 1, line.getHorizontalLength());
+        Assert.assertEquals("The length is not right", 1, ShapeRotations.getWidth(kind, orientation.getValue()));
 
-        line.rotateRight();
-        line.rotateRight();
+        orientation = orientation.next();
+        orientation = orientation.next();
 
-        Assert.assertEquals("The length is not right", 1, line.getHorizontalLength());
+        Assert.assertEquals("The length is not right", 1, ShapeRotations.getWidth(kind, orientation.getValue()));
 
-        line.rotateRight();
+        orientation = orientation.next();
 
-        Assert.assertEquals("The length is not right", 4, line.getHorizontalLength());
+        Assert.assertEquals("The length is not right", 4, ShapeRotations.getWidth(kind, orientation.getValue()));
     }
 
     @Test
     public void testTFormShapeGetHorizontalLength() {
-        Shape tForm = new TForm();
+        int kind = ShapeKind.T_FORM.getId();
+        Orientation orientation = Orientation.UP;
 
-        Assert.assertEquals("The length is not right", 3, tForm.getHorizontalLength());
+        Assert.assertEquals("The length is not right", 3, ShapeRotations.getWidth(kind, orientation.getValue()));
 
-        tForm.rotateLeft();
+        orientation = orientation.previous();
 
-        Assert.assertEquals("The length is not right", 2, tForm.getHorizontalLength());
+        Assert.assertEquals("The length is not right", 2, ShapeRotations.getWidth(kind, orientation.getValue()));
 
-        tForm.rotateRight();
-        tForm.rotateRight();
+        orientation = orientation.next();
+        orientation = orientation.next();
 
-        Assert.assertEquals("The length is not right", 2, tForm.getHorizontalLength());
+        Assert.assertEquals("The length is not right", 2, ShapeRotations.getWidth(kind, orientation.getValue()));
 
-        tForm.rotateRight();
+        orientation = orientation.next();
 
-        Assert.assertEquals("The length is not right", 3, tForm.getHorizontalLength());
+        Assert.assertEquals("The length is not right", 3, ShapeRotations.getWidth(kind, orientation.getValue()));
     }
 
     @Test
     public void testZigzagShapeGetHorizontalLength() {
-        Shape zigzag = new Zigzag();
+        int kind = ShapeKind.ZIGZAG.getId();
+        Orientation orientation = Orientation.UP;
 
-        Assert.assertEquals("The length is not right", 3, zigzag.getHorizontalLength());
+        Assert.assertEquals("The length is not right", 3, ShapeRotations.getWidth(kind, orientation.getValue()));
 
-        zigzag.rotateLeft();
+        orientation = orientation.previous();
 
-        Assert.assertEquals("The length is not right", 2, zigzag.getHorizontalLength());
+        Assert.assertEquals("The length is not right", 2, ShapeRotations.getWidth(kind, orientation.getValue()));
 
-        zigzag.rotateRight();
-        zigzag.rotateRight();
+        orientation = orientation.next();
+        orientation = orientation.next();
 
-        Assert.assertEquals("The length is not right", 2, zigzag.getHorizontalLength());
+        Assert.assertEquals("The length is not right", 2, ShapeRotations.getWidth(kind, orientation.getValue()));
 
-        zigzag.rotateRight();
+        orientation = orientation.next();
 
-        Assert.assertEquals("The length is not right", 3, zigzag.getHorizontalLength());
+        Assert.assertEquals("The length is not right", 3, ShapeRotations.getWidth(kind, orientation.getValue()));
     }
 
     @Test
     public void testLFormShapeGetHorizontalLength() {
-        Shape lForm = new LForm();
+        int kind = ShapeKind.L_FORM.getId();
+        Orientation orientation = Orientation.UP;
 
-        Assert.assertEquals("The length is not right", 3, lForm.getHorizontalLength());
+        Assert.assertEquals("The length is not right", 3, ShapeRotations.getWidth(kind, orientation.getValue()));
 
-        lForm.rotateLeft();
+        orientation = orientation.previous();
 
-        Assert.assertEquals("The length is not right", 2, lForm.getHorizontalLength());
+        Assert.assertEquals("The length is not right", 2, ShapeRotations.getWidth(kind, orientation.getValue()));
 
-        lForm.rotateRight();
-        lForm.rotateRight();
+        orientation = orientation.next();
+        orientation = orientation.next();
 
-        Assert.assertEquals("The length is not right", 2, lForm.getHorizontalLength());
+        Assert.assertEquals("The length is not right", 2, ShapeRotations.getWidth(kind, orientation.getValue()));
 
-        lForm.rotateRight();
+        orientation = orientation.next();
 
-        Assert.assertEquals("The length is not right", 3, lForm.getHorizontalLength());
+        Assert.assertEquals("The length is not right", 3, ShapeRotations.getWidth(kind, orientation.getValue()));
+    }
+
+    @Test
+    public void testUniqueOrientationCounts() {
+        Assert.assertEquals("The unique orientation count is not right", 1, ShapeRotations.getUniqueOrientationCount(ShapeKind.SQUARE.getId()));
+        Assert.assertEquals("The unique orientation count is not right", 2, ShapeRotations.getUniqueOrientationCount(ShapeKind.LINE.getId()));
+        Assert.assertEquals("The unique orientation count is not right", 2, ShapeRotations.getUniqueOrientationCount(ShapeKind.ZIGZAG.getId()));
+        Assert.assertEquals("The unique orientation count is not right", 2, ShapeRotations.getUniqueOrientationCount(ShapeKind.ZIGZAG_MIRROR.getId()));
+        Assert.assertEquals("The unique orientation count is not right", 4, ShapeRotations.getUniqueOrientationCount(ShapeKind.T_FORM.getId()));
+        Assert.assertEquals("The unique orientation count is not right", 4, ShapeRotations.getUniqueOrientationCount(ShapeKind.L_FORM.getId()));
+        Assert.assertEquals("The unique orientation count is not right", 4, ShapeRotations.getUniqueOrientationCount(ShapeKind.L_FORM_MIRROR.getId()));
+    }
+
+    @Test
+    public void testLineShapeRowMasks() {
+        int line = ShapeKind.LINE.getId();
+
+        Assert.assertEquals("The top offset is not right", 1, ShapeRotations.getTopOffset(line, 0));
+        Assert.assertEquals("The row mask is not right", 0b1111, ShapeRotations.getRowMask(line, 0, 1));
+
+        int orientation = Orientation.UP.next().getValue();
+
+        Assert.assertEquals("The left offset is not right", 2, ShapeRotations.getLeftOffset(line, orientation));
+        Assert.assertEquals("The height is not right", 4, ShapeRotations.getHeight(line, orientation));
+        Assert.assertEquals("The row mask is not right", 0b1, ShapeRotations.getRowMask(line, orientation, 3));
     }
 }
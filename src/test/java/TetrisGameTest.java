@@ -0,0 +1,46 @@
+import edu.vbu.tetris_with_ai.core.Placement;
+import edu.vbu.tetris_with_ai.core.TetrisGame;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TetrisGameTest {
+
+    @Test
+    public void testGameEndsWhenItRunsOutOfPieces() {
+        TetrisGame game = new TetrisGame();
+        game.setLimits(0, 3);
+        game.startGame(0, false);
+
+        for (int k = 0; k < 2; k++) {
+            game.performPlacement(new Placement(0, 0));
+        }
+
+        Assert.assertFalse("The game should still be running", game.isGameOver());
+
+        game.performPlacement(new Placement(0, 0));
+
+        Assert.assertTrue("The game should be over", game.isGameOver());
+        Assert.assertEquals("The placed piece count is not right", 3, game.getPlacedPieceCount());
+    }
+
+    @Test
+    public void testGameEndsWhenItRunsOutOfTicks() throws Exception {
+        TetrisGame game = new TetrisGame();
+        game.setLimits(5, 0);
+        game.startGame(0, false);
+
+        for (int k = 0; k < 4; k++) {
+            game.gameLoopSingleCycle();
+        }
+
+        Assert.assertFalse("The game should still be running", game.isGameOver());
+
+        game.gameLoopSingleCycle();
+
+        Assert.assertTrue("The game should be over", game.isGameOver());
+        Assert.assertEquals("The tick count is not right", 5, game.getTickCount());
+    }
+}
@@ -0,0 +1,43 @@
+import edu.vbu.tetris_with_ai.ai.TranspositionTable;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TranspositionTableTest {
+
+    @Test
+    public void testStoredEntryIsFound() {
+        TranspositionTable table = new TranspositionTable(16);
+
+        Assert.assertEquals("The table should be empty", TranspositionTable.NO_ENTRY, table.probe(42L));
+
+        table.store(42L, -1.5f, 3, -1, 2);
+        long entry = table.probe(42L);
+
+        Assert.assertEquals("The evaluation is not right", -1.5f, TranspositionTable.getEvaluation(entry), 0.0f);
+        Assert.assertEquals("The orientation is not right", 3, TranspositionTable.getOrientation(entry));
+        Assert.assertEquals("The column is not right", -1, TranspositionTable.getColumnIndex(entry));
+        Assert.assertEquals("The depth is not right", 2, TranspositionTable.getDepth(entry));
+        Assert.assertEquals("The hit count is not right", 1, table.getHitCount());
+        Assert.assertEquals("The miss count is not right", 1, table.getMissCount());
+    }
+
+    @Test
+    public void testDeeperEntriesAreKeptUntilTheyAge() {
+        TranspositionTable table = new TranspositionTable(16);
+        long key = 5L, collidingKey = 5L + 16;
+
+        table.store(key, 1.0f, 0, 0, 2);
+        table.store(collidingKey, 1.0f, 0, 0, 1);
+
+        Assert.assertNotEquals("The deeper entry should be kept", TranspositionTable.NO_ENTRY, table.probe(key));
+
+        table.incrementAge();
+        table.store(collidingKey, 1.0f, 0, 0, 1);
+
+        Assert.assertEquals("The older entry should be replaced", TranspositionTable.NO_ENTRY, table.probe(key));
+        Assert.assertNotEquals("The newer entry should be stored", TranspositionTable.NO_ENTRY, table.probe(collidingKey));
+    }
+}